@@ -0,0 +1,170 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.assertions.generator.AssertionsEntryPointType.STANDARD;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.assertj.assertions.generator.BaseAssertionGenerator;
+import org.assertj.assertions.generator.description.ClassDescription;
+import org.assertj.assertions.generator.description.converter.ClassToClassDescriptionConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the generator hot paths on {@link SyntheticClasses synthetic classes}.
+ * <p>
+ * The generator is configured like the plugin does by default, except that incremental generation is disabled so that
+ * each invocation does the whole work, and that a single thread is used to get comparable allocation rates. Run with
+ * the GC profiler (see {@link BenchmarksRunner}) to get allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssertionsGeneratorBenchmark {
+
+  // 60 exclude regexes: literal package prefixes, literal class names and regexes
+  private static final int EXCLUDE_PATTERNS_PER_KIND = 20;
+
+  @Param({ "100", "1000", "10000" })
+  public int classCount;
+
+  private SyntheticClasses syntheticClasses;
+  private List<String> classNames;
+  private File destinationDirectory;
+  private AssertionsGenerator filteringGenerator;
+  private BaseAssertionGenerator baseGenerator;
+  private Set<ClassDescription> classDescriptions;
+  private AssertionsGeneratorReport report;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+	syntheticClasses = SyntheticClasses.generate(classCount);
+	classNames = syntheticClasses.getClassNames();
+	destinationDirectory = SyntheticClasses.createTemporaryDirectory("assertj-benchmark-assertions");
+	filteringGenerator = newAssertionsGenerator();
+	filteringGenerator.setExcludePatterns(excludeRegexs());
+	baseGenerator = new BaseAssertionGenerator();
+	baseGenerator.setDirectoryWhereAssertionFilesAreGenerated(destinationDirectory.getAbsolutePath());
+	ClassToClassDescriptionConverter converter = new ClassToClassDescriptionConverter();
+	classDescriptions = new HashSet<ClassDescription>();
+	for (Class<?> clazz : syntheticClasses.getClasses()) {
+	  classDescriptions.add(converter.convertToClassDescription(clazz));
+	}
+	report = reportOf(syntheticClasses.getClasses());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+	syntheticClasses.dispose();
+	SyntheticClasses.delete(destinationDirectory);
+  }
+
+  @Benchmark
+  public AssertionsGeneratorReport generateAssertions() throws Exception {
+	return generateAssertions(false);
+  }
+
+  @Benchmark
+  public AssertionsGeneratorReport generateHierarchicalAssertions() throws Exception {
+	return generateAssertions(true);
+  }
+
+  @Benchmark
+  public void filterClassNames(Blackhole blackhole) {
+	for (String className : classNames) {
+	  blackhole.consume(filteringGenerator.isAssertionsGenerationEnabledFor(className));
+	}
+  }
+
+  @Benchmark
+  public Set<Class<?>> removeAssertClasses() {
+	return filteringGenerator.removeAssertClasses(syntheticClasses.getClasses());
+  }
+
+  @Benchmark
+  public String getReportContent() {
+	return report.getReportContent();
+  }
+
+  @Benchmark
+  public String generateEntryPoint() throws Exception {
+	return baseGenerator.generateAssertionsEntryPointClassContentFor(classDescriptions, STANDARD,
+	                                                                 SyntheticClasses.BASE_PACKAGE);
+  }
+
+  private AssertionsGeneratorReport generateAssertions(boolean hierarchical) throws Exception {
+	AssertionsGenerator generator = newAssertionsGenerator();
+	generator.enableEntryPointClassesGenerationFor(STANDARD);
+	AssertionsGeneratorReport generationReport = generator.generateAssertionsFor(
+	    new String[] { SyntheticClasses.BASE_PACKAGE }, new String[0], destinationDirectory.getAbsolutePath(), null,
+	    hierarchical);
+	if (generationReport.getReportedException() != null) throw generationReport.getReportedException();
+	return generationReport;
+  }
+
+  private AssertionsGenerator newAssertionsGenerator() throws Exception {
+	AssertionsGenerator generator = new AssertionsGenerator(syntheticClasses.getClassLoader());
+	generator.setScanBytecode(true);
+	generator.setWriteChangedFilesOnly(true);
+	generator.setIncremental(false);
+	generator.setThreads(1);
+	generator.setLog(new SystemStreamLog());
+	return generator;
+  }
+
+  private static String[] excludeRegexs() {
+	String[] excludeRegexs = new String[3 * EXCLUDE_PATTERNS_PER_KIND];
+	for (int i = 0; i < EXCLUDE_PATTERNS_PER_KIND; i++) {
+	  excludeRegexs[3 * i] = "bench\\.p" + (i * 7) + "\\.internal\\..*";
+	  excludeRegexs[3 * i + 1] = "bench\\.p" + i + "\\.Bean" + (i * SyntheticClasses.CLASSES_PER_PACKAGE + 1);
+	  excludeRegexs[3 * i + 2] = ".*Bean" + i + "\\d*Impl";
+	}
+	return excludeRegexs;
+  }
+
+  private AssertionsGeneratorReport reportOf(Set<Class<?>> classes) throws Exception {
+	AssertionsGeneratorReport generatorReport = new AssertionsGeneratorReport();
+	generatorReport.setInputPackages(new String[] { SyntheticClasses.BASE_PACKAGE });
+	generatorReport.setDirectoryPathWhereAssertionFilesAreGenerated(destinationDirectory.getAbsolutePath());
+	for (Class<?> clazz : classes) {
+	  generatorReport.addGeneratedAssertionFile(new File(destinationDirectory,
+	                                                     clazz.getName().replace('.', File.separatorChar)
+	                                                         + "Assert.java"));
+	}
+	generatorReport.reportEntryPointGeneration(STANDARD, new File(destinationDirectory, "Assertions.java"));
+	return generatorReport;
+  }
+
+}
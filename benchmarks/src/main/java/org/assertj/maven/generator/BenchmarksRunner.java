@@ -0,0 +1,39 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes the results in <code>jmh-result.json</code> so that runs of
+ * different releases can be compared.
+ * <p>
+ * An optional argument restricts the benchmarks to run, for example <code>filterClassNames</code>.
+ */
+public class BenchmarksRunner {
+
+  public static void main(String[] args) throws Exception {
+	String benchmarks = AssertionsGeneratorBenchmark.class.getSimpleName() + "." + (args.length > 0 ? args[0] : "");
+	Options options = new OptionsBuilder().include(benchmarks)
+	                                      .addProfiler(GCProfiler.class)
+	                                      .resultFormat(ResultFormatType.JSON)
+	                                      .result("jmh-result.json")
+	                                      .build();
+	new Runner(options).run();
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * A set of generated and compiled classes to benchmark the generator on.
+ * <p>
+ * Classes are spread in packages of {@value #CLASSES_PER_PACKAGE} classes under the {@value #BASE_PACKAGE} package,
+ * they have a few properties and most of them extend the previous class so that hierarchical generation has
+ * something to do. One class in {@value #ASSERT_CLASS_FREQUENCY} is named like an assertion class.
+ */
+class SyntheticClasses {
+
+  static final String BASE_PACKAGE = "bench";
+  static final int CLASSES_PER_PACKAGE = 100;
+  private static final int ASSERT_CLASS_FREQUENCY = 20;
+  // one class in HIERARCHY_DEPTH starts a new hierarchy
+  private static final int HIERARCHY_DEPTH = 4;
+
+  private final File baseDirectory;
+  private final URLClassLoader classLoader;
+  private final Set<Class<?>> classes;
+
+  private SyntheticClasses(File baseDirectory, URLClassLoader classLoader, Set<Class<?>> classes) {
+	this.baseDirectory = baseDirectory;
+	this.classLoader = classLoader;
+	this.classes = classes;
+  }
+
+  /**
+   * Generates, compiles and loads the given number of classes in a temporary directory.
+   */
+  static SyntheticClasses generate(int classCount) throws Exception {
+	File baseDirectory = createTemporaryDirectory("assertj-benchmark-classes");
+	File sourcesDirectory = new File(baseDirectory, "src");
+	File classesDirectory = new File(baseDirectory, "classes");
+	classesDirectory.mkdirs();
+	List<File> sourceFiles = new ArrayList<File>(classCount);
+	List<String> classNames = new ArrayList<String>(classCount);
+	for (int i = 0; i < classCount; i++) {
+	  String className = classNameOf(i);
+	  File sourceFile = new File(sourcesDirectory, className.replace('.', File.separatorChar) + ".java");
+	  write(sourceOf(i), sourceFile);
+	  sourceFiles.add(sourceFile);
+	  classNames.add(className);
+	}
+	compile(sourceFiles, classesDirectory);
+	URLClassLoader classLoader = new URLClassLoader(new URL[] { classesDirectory.toURI().toURL() },
+	                                                SyntheticClasses.class.getClassLoader());
+	Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+	for (String className : classNames) {
+	  classes.add(Class.forName(className, false, classLoader));
+	}
+	return new SyntheticClasses(baseDirectory, classLoader, classes);
+  }
+
+  private static String classNameOf(int index) {
+	String simpleName = index % ASSERT_CLASS_FREQUENCY == ASSERT_CLASS_FREQUENCY - 1 ? "Bean" + index + "Assert"
+	    : "Bean" + index;
+	return packageOf(index) + "." + simpleName;
+  }
+
+  private static String packageOf(int index) {
+	return BASE_PACKAGE + ".p" + (index / CLASSES_PER_PACKAGE);
+  }
+
+  private static String sourceOf(int index) {
+	String className = classNameOf(index);
+	String simpleName = className.substring(className.lastIndexOf('.') + 1);
+	StringBuilder source = new StringBuilder();
+	source.append("package ").append(packageOf(index)).append(";\n\n");
+	source.append("public class ").append(simpleName);
+	if (index % HIERARCHY_DEPTH != 0) source.append(" extends ").append(classNameOf(index - 1));
+	source.append(" {\n");
+	appendProperty(source, "String", "name" + index, "get");
+	appendProperty(source, "int", "count" + index, "get");
+	appendProperty(source, "boolean", "active" + index, "is");
+	appendProperty(source, "java.util.List<String>", "tags" + index, "get");
+	source.append("}\n");
+	return source.toString();
+  }
+
+  private static void appendProperty(StringBuilder source, String type, String name, String getterPrefix) {
+	String getter = getterPrefix + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	source.append("  private ").append(type).append(' ').append(name).append(";\n");
+	source.append("  public ").append(type).append(' ').append(getter).append("() { return ").append(name)
+	      .append("; }\n");
+  }
+
+  private static void write(String content, File file) throws IOException {
+	file.getParentFile().mkdirs();
+	Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+	try {
+	  writer.write(content);
+	} finally {
+	  writer.close();
+	}
+  }
+
+  private static void compile(List<File> sourceFiles, File classesDirectory) throws IOException {
+	JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	if (compiler == null) throw new IllegalStateException("Benchmarks must run on a JDK to compile synthetic classes");
+	StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, Charset.forName("UTF-8"));
+	try {
+	  List<String> options = Arrays.asList("-d", classesDirectory.getAbsolutePath(), "-nowarn", "-proc:none");
+	  Boolean compiled = compiler.getTask(null, fileManager, null, options, null,
+		                                  fileManager.getJavaFileObjectsFromFiles(sourceFiles)).call();
+	  if (!compiled) throw new IllegalStateException("Synthetic classes could not be compiled");
+	} finally {
+	  fileManager.close();
+	}
+  }
+
+  static File createTemporaryDirectory(String prefix) throws IOException {
+	File directory = File.createTempFile(prefix, "");
+	if (!directory.delete() || !directory.mkdirs()) throw new IOException("Could not create " + directory);
+	return directory;
+  }
+
+  static void delete(File file) {
+	File[] children = file.listFiles();
+	if (children != null) {
+	  for (File child : children) {
+		delete(child);
+	  }
+	}
+	file.delete();
+  }
+
+  ClassLoader getClassLoader() {
+	return classLoader;
+  }
+
+  Set<Class<?>> getClasses() {
+	return classes;
+  }
+
+  List<String> getClassNames() {
+	List<String> classNames = new ArrayList<String>(classes.size());
+	for (Class<?> clazz : classes) {
+	  classNames.add(clazz.getName());
+	}
+	return classNames;
+  }
+
+  void dispose() throws IOException {
+	classLoader.close();
+	delete(baseDirectory);
+  }
+
+}
@@ -0,0 +1,244 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.io.ByteStreams.toByteArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Compiles the sources of a zip archive with the JDK compiler, reading them straight from the archive so that they
+ * never get extracted.
+ * <p>
+ * The archive is only compiled when its entries or the compiler options have changed since it was last compiled in
+ * the output directory, as recorded in a <code>.classes</code> file next to the archive: the fingerprint of the
+ * archive entries and options followed by the class files the archive was compiled to. These class files are deleted
+ * before compiling the archive again, so that the classes of sources removed from the archive don't stay in the output
+ * directory.
+ */
+class ArchiveCompiler {
+
+  private static final String JAVA_FILE_EXTENSION = ".java";
+  private static final String CLASS_FILE_EXTENSION = ".class";
+  private static final String COMPILED_CLASSES_FILE_SUFFIX = ".classes";
+  private final List<String> classpathElements;
+  private final List<String> compilerOptions;
+  private final Charset charset;
+
+  /**
+   * @param classpathElements the classpath to compile against.
+   * @param compilerOptions additional javac options, like <code>-source</code> and <code>-target</code>.
+   * @param charset the encoding of the archive sources.
+   */
+  ArchiveCompiler(List<String> classpathElements, List<String> compilerOptions, Charset charset) {
+	this.classpathElements = classpathElements;
+	this.compilerOptions = compilerOptions;
+	this.charset = charset;
+  }
+
+  /**
+   * Compiles the sources of the given archive in the given directory, unless they are already compiled there.
+   *
+   * @return the number of compiled source files, 0 if the archive classes were up to date.
+   * @throws IOException if the archive can't be read or the compilation fails.
+   */
+  int compile(File archive, File outputDirectory) throws IOException {
+	JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	if (compiler == null) {
+	  throw new IOException("No Java compiler available to compile " + archive + ", Maven must run on a JDK");
+	}
+	File compiledClassesFile = new File(archive.getPath() + COMPILED_CLASSES_FILE_SUFFIX);
+	ZipFile zipFile = new ZipFile(archive);
+	try {
+	  String fingerprint = fingerprintOf(zipFile);
+	  List<String> compiledClasses = compiledClassesOf(compiledClassesFile);
+	  if (isUpToDate(compiledClasses, fingerprint, outputDirectory)) return 0;
+	  // no record of the classes while they are being replaced, in case the compilation fails
+	  compiledClassesFile.delete();
+	  for (String classFile : classFilesOf(compiledClasses)) {
+		new File(outputDirectory, classFile).delete();
+	  }
+	  List<JavaFileObject> sources = sourcesOf(zipFile, archive, charset);
+	  if (sources.isEmpty()) return 0;
+	  outputDirectory.mkdirs();
+	  List<String> options = new ArrayList<String>(compilerOptions);
+	  options.add("-d");
+	  options.add(outputDirectory.getAbsolutePath());
+	  options.add("-classpath");
+	  options.add(Joiner.on(File.pathSeparator).join(classpathElements));
+	  options.add("-proc:none");
+	  DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+	  ClassFilesRecorder fileManager = new ClassFilesRecorder(compiler.getStandardFileManager(diagnostics, null,
+		                                                                                       charset));
+	  try {
+		Boolean compiled = compiler.getTask(null, fileManager, diagnostics, options, null, sources).call();
+		if (!compiled) throw new IOException("Could not compile " + archive + " :\n" + errorsOf(diagnostics));
+	  } finally {
+		fileManager.close();
+	  }
+	  fileManager.classFiles.add(0, fingerprint);
+	  Files.write(Joiner.on('\n').join(fileManager.classFiles), compiledClassesFile, UTF_8);
+	  return sources.size();
+	} finally {
+	  zipFile.close();
+	}
+  }
+
+  /**
+   * Returns the fingerprint of the archive entries (their names and CRCs) and of the compiler options.
+   */
+  private String fingerprintOf(ZipFile zipFile) {
+	Hasher hasher = Hashing.sha1().newHasher();
+	for (String option : compilerOptions) {
+	  hasher.putString(option, UTF_8);
+	}
+	hasher.putString(charset.name(), UTF_8);
+	Enumeration<? extends ZipEntry> entries = zipFile.entries();
+	while (entries.hasMoreElements()) {
+	  ZipEntry entry = entries.nextElement();
+	  hasher.putString(entry.getName(), UTF_8).putLong(entry.getCrc());
+	}
+	return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the fingerprint recorded at the last compilation of the archive followed by the class files it wrote, an
+   * empty list if there is no such record.
+   */
+  private static List<String> compiledClassesOf(File compiledClassesFile) {
+	if (!compiledClassesFile.isFile()) return new ArrayList<String>();
+	try {
+	  return Files.readLines(compiledClassesFile, UTF_8);
+	} catch (IOException e) {
+	  // the archive is compiled again
+	  return new ArrayList<String>();
+	}
+  }
+
+  private static List<String> classFilesOf(List<String> compiledClasses) {
+	return compiledClasses.isEmpty() ? compiledClasses : compiledClasses.subList(1, compiledClasses.size());
+  }
+
+  /**
+   * Returns true if the archive was last compiled with the given fingerprint and its class files are still there.
+   */
+  private static boolean isUpToDate(List<String> compiledClasses, String fingerprint, File outputDirectory) {
+	if (compiledClasses.isEmpty() || !compiledClasses.get(0).equals(fingerprint)) return false;
+	for (String classFile : classFilesOf(compiledClasses)) {
+	  if (!new File(outputDirectory, classFile).isFile()) return false;
+	}
+	return true;
+  }
+
+  private static List<JavaFileObject> sourcesOf(ZipFile zipFile, File archive, Charset charset) {
+	List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+	Enumeration<? extends ZipEntry> entries = zipFile.entries();
+	while (entries.hasMoreElements()) {
+	  ZipEntry entry = entries.nextElement();
+	  if (!entry.isDirectory() && entry.getName().endsWith(JAVA_FILE_EXTENSION)) {
+		sources.add(new ArchivedSource(zipFile, archive, entry, charset));
+	  }
+	}
+	return sources;
+  }
+
+  private static String errorsOf(DiagnosticCollector<JavaFileObject> diagnostics) {
+	StringBuilder errors = new StringBuilder();
+	for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+	  if (diagnostic.getKind() != Diagnostic.Kind.ERROR) continue;
+	  JavaFileObject source = diagnostic.getSource();
+	  if (source != null) errors.append(source.getName()).append(':').append(diagnostic.getLineNumber()).append(' ');
+	  errors.append(diagnostic.getMessage(Locale.ENGLISH)).append('\n');
+	}
+	return errors.toString();
+  }
+
+  /**
+   * Records the paths of the class files written by the compiler, relative to the output directory.
+   */
+  private static class ClassFilesRecorder extends ForwardingJavaFileManager<StandardJavaFileManager> {
+	private final List<String> classFiles = new ArrayList<String>();
+
+	ClassFilesRecorder(StandardJavaFileManager fileManager) {
+	  super(fileManager);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+	                                           FileObject sibling) throws IOException {
+	  if (kind == JavaFileObject.Kind.CLASS) classFiles.add(className.replace('.', '/') + CLASS_FILE_EXTENSION);
+	  return super.getJavaFileForOutput(location, className, kind, sibling);
+	}
+  }
+
+  /**
+   * A source file read from its archive entry when the compiler needs it.
+   */
+  private static class ArchivedSource extends SimpleJavaFileObject {
+	private final ZipFile zipFile;
+	private final ZipEntry entry;
+	private final Charset charset;
+	private final String name;
+
+	ArchivedSource(ZipFile zipFile, File archive, ZipEntry entry, Charset charset) {
+	  // javac needs a hierarchical URI, jar URIs are opaque
+	  super(URI.create("archive:/" + entry.getName()), Kind.SOURCE);
+	  this.zipFile = zipFile;
+	  this.entry = entry;
+	  this.charset = charset;
+	  this.name = archive.getPath() + "!/" + entry.getName();
+	}
+
+	@Override
+	public String getName() {
+	  return name;
+	}
+
+	@Override
+	public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+	  InputStream content = zipFile.getInputStream(entry);
+	  try {
+		return new String(toByteArray(content), charset);
+	  } finally {
+		content.close();
+	  }
+	}
+  }
+
+}
@@ -0,0 +1,333 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static java.lang.String.format;
+import static org.apache.commons.lang3.ArrayUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.split;
+import static org.apache.maven.plugins.annotations.LifecyclePhase.GENERATE_TEST_SOURCES;
+import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CLASSLOADER;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.assertj.maven.generator.GenerationMetrics;
+import org.assertj.maven.generator.GenerationMetrics.Checkpoint;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Generates the assertions of all the modules of the reactor in one execution, each module being generated in its own
+ * target directory with the <code>generate-assertions</code> configuration of its pom.
+ * <p>
+ * Compared to a <code>generate-assertions</code> execution per module, the assertions templates are loaded once and
+ * the jars shared by all the modules classpaths are opened by a single class loader, the parent of the class loaders
+ * of the modules. Modules are generated in parallel.
+ * <p>
+ * The classes of the modules must have been compiled, the goal is meant to be run from the command line once the
+ * modules are compiled, for example <code>mvn compile assertj:generate-assertions-aggregate test</code>: the
+ * generated assertions directories are then added to the test sources of their module for the rest of the build.
+ * <p>
+ * Every parameter of the <code>generate-assertions</code> goal can be configured in the modules poms, with the same
+ * defaults, but the <code>assertj.*</code> command line properties of that goal are not applied. Only the
+ * <code>${project.build.directory}</code>, <code>${project.basedir}</code> and <code>${basedir}</code> expressions
+ * left by Maven are interpolated; the build fails on an unknown parameter or any other expression rather than
+ * generating with a configuration that is not the one of the module.
+ */
+@Mojo(name = "generate-assertions-aggregate", aggregator = true,
+    defaultPhase = GENERATE_TEST_SOURCES, requiresDependencyResolution = TEST, requiresProject = true)
+public class AssertJAssertionsGeneratorAggregateMojo extends AbstractMojo {
+
+  static final String PLUGIN_KEY = "org.assertj:assertj-assertions-generator-maven-plugin";
+  private static final String GOAL = "generate-assertions-aggregate";
+  private static final Set<Class<?>> PARAMETER_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+	  String.class, String[].class, boolean.class, int.class));
+  // the generate-assertions goal parameters that can be configured in the modules, by name
+  private static final Map<String, Field> MODULE_PARAMETERS = moduleParameters();
+  private static final String GENERATE_ASSERTIONS_GOAL = "generate-assertions";
+  private static final String DEFAULT_TARGET_DIRECTORY = "generated-test-sources" + File.separator
+                                                         + "assertj-assertions";
+
+  /**
+   * The projects of the reactor.
+   */
+  @Parameter(defaultValue = "${reactorProjects}", required = true, readonly = true)
+  public List<MavenProject> reactorProjects;
+
+  /**
+   * Number of modules generated in parallel, defaults to the number of available processors. The available processors
+   * are shared between the modules generated in parallel: each module uses at most its share of them, whatever its
+   * <code>threads</code> parameter.
+   */
+  @Parameter(property = "assertj.moduleThreads")
+  public int moduleThreads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Skip generating classes, handy way to disable the plugin.
+   */
+  @Parameter(property = "assertj.skip")
+  public boolean skip = false;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+	if (skip) {
+	  getLog().info("Assertions generator is disabled as 'skip' option is true.");
+	  return;
+	}
+	List<AssertJAssertionsGeneratorMojo> moduleMojos = new ArrayList<AssertJAssertionsGeneratorMojo>();
+	for (MavenProject module : reactorProjects) {
+	  AssertJAssertionsGeneratorMojo moduleMojo = moduleMojoOf(module);
+	  if (moduleMojo != null) moduleMojos.add(moduleMojo);
+	}
+	int threads = Math.max(1, Math.min(moduleThreads, moduleMojos.size()));
+	int threadsPerModule = Math.max(1, Runtime.getRuntime().availableProcessors() / threads);
+	for (AssertJAssertionsGeneratorMojo moduleMojo : moduleMojos) {
+	  moduleMojo.threads = Math.max(1, Math.min(moduleMojo.threads, threadsPerModule));
+	}
+	if (moduleMojos.isEmpty()) {
+	  getLog().info("No module of the reactor configures the assertions generation.");
+	  return;
+	}
+	try {
+	  List<List<String>> classpaths = new ArrayList<List<String>>();
+	  for (AssertJAssertionsGeneratorMojo moduleMojo : moduleMojos) {
+		classpaths.add(classpathOf(moduleMojo.project));
+	  }
+	  List<String> sharedJars = sharedJarsOf(classpaths);
+	  ClassLoader parent = Thread.currentThread().getContextClassLoader();
+	  IndexedClassLoader sharedClassLoader = IndexedClassLoader.of(sharedJars, parent);
+	  try {
+		generate(moduleMojos, classpaths, sharedJars, sharedClassLoader, threads);
+	  } finally {
+		sharedClassLoader.close();
+	  }
+	} catch (MojoExecutionException e) {
+	  throw e;
+	} catch (Exception e) {
+	  throw new MojoExecutionException(e.getMessage(), e);
+	}
+  }
+
+  private void generate(List<AssertJAssertionsGeneratorMojo> moduleMojos, List<List<String>> classpaths,
+	                    List<String> sharedJars, final ClassLoader sharedClassLoader, int threads) throws Exception {
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	try {
+	  List<Future<Void>> results = new ArrayList<Future<Void>>(moduleMojos.size());
+	  for (int i = 0; i < moduleMojos.size(); i++) {
+		final AssertJAssertionsGeneratorMojo moduleMojo = moduleMojos.get(i);
+		final List<String> moduleClasspath = new ArrayList<String>(classpaths.get(i));
+		moduleClasspath.removeAll(sharedJars);
+		results.add(executor.submit(new Callable<Void>() {
+		  @Override
+		  public Void call() throws Exception {
+			generate(moduleMojo, moduleClasspath, sharedClassLoader);
+			return null;
+		  }
+		}));
+	  }
+	  // waits for all the modules before reporting the first failure
+	  Exception failure = null;
+	  for (int i = 0; i < results.size(); i++) {
+		try {
+		  results.get(i).get();
+		} catch (ExecutionException e) {
+		  String module = moduleMojos.get(i).project.getId();
+		  if (failure == null) {
+			failure = new MojoExecutionException("Assertions generation failed for " + module, e.getCause());
+		  }
+		}
+	  }
+	  if (failure != null) throw failure;
+	} finally {
+	  executor.shutdownNow();
+	}
+  }
+
+  private static void generate(AssertJAssertionsGeneratorMojo moduleMojo, List<String> moduleClasspath,
+	                           ClassLoader sharedClassLoader) throws Exception {
+	GenerationMetrics metrics = new GenerationMetrics();
+	Checkpoint checkpoint = metrics.start();
+	IndexedClassLoader moduleClassLoader = IndexedClassLoader.of(moduleClasspath, sharedClassLoader);
+	metrics.record(CLASSLOADER, checkpoint);
+	try {
+	  moduleMojo.executeWithClassLoader(moduleClassLoader, metrics);
+	} finally {
+	  moduleClassLoader.close();
+	}
+  }
+
+  /**
+   * Returns the mojo generating the assertions of the given module with its configuration, null if the module does not
+   * configure the assertions generation.
+   *
+   * @throws MojoFailureException if the configuration has a parameter or an expression that is not supported.
+   */
+  private AssertJAssertionsGeneratorMojo moduleMojoOf(MavenProject module) throws MojoFailureException {
+	Xpp3Dom configuration = configurationOf(module);
+	if (configuration == null) return null;
+	AssertJAssertionsGeneratorMojo moduleMojo = new AssertJAssertionsGeneratorMojo();
+	moduleMojo.setLog(getLog());
+	moduleMojo.project = module;
+	// the defaults given by expressions
+	moduleMojo.targetDir = new File(module.getBuild().getDirectory(), DEFAULT_TARGET_DIRECTORY).getPath();
+	moduleMojo.reportDirectory = module.getBuild().getDirectory();
+	for (Xpp3Dom parameter : configuration.getChildren()) {
+	  configure(moduleMojo, parameter, module);
+	}
+	if (moduleMojo.skip || isEmpty(moduleMojo.packages) && isEmpty(moduleMojo.classes)) return null;
+	return moduleMojo;
+  }
+
+  private static void configure(AssertJAssertionsGeneratorMojo moduleMojo, Xpp3Dom parameter, MavenProject module)
+	  throws MojoFailureException {
+	Field field = MODULE_PARAMETERS.get(parameter.getName());
+	if (field == null) {
+	  throw new MojoFailureException(format("Parameter '%s' of %s is not supported by the %s goal",
+		                                    parameter.getName(), module.getId(), GOAL));
+	}
+	try {
+	  Class<?> type = field.getType();
+	  if (type == String[].class) {
+		String[] values = arrayValue(parameter, module);
+		if (values != null) field.set(moduleMojo, values);
+		return;
+	  }
+	  String value = value(parameter, module);
+	  // an empty parameter keeps its default value
+	  if (value == null) return;
+	  if (type == String.class) field.set(moduleMojo, value);
+	  else if (type == boolean.class) field.setBoolean(moduleMojo, Boolean.parseBoolean(value));
+	  else field.setInt(moduleMojo, Integer.parseInt(value));
+	} catch (NumberFormatException e) {
+	  throw new MojoFailureException(format("Parameter '%s' of %s is not a number : %s", parameter.getName(),
+		                                    module.getId(), parameter.getValue()));
+	} catch (IllegalAccessException e) {
+	  throw new IllegalStateException(e);
+	}
+  }
+
+  /**
+   * Returns the public fields of the generate-assertions goal parameters, by name.
+   */
+  private static Map<String, Field> moduleParameters() {
+	Map<String, Field> parameters = new HashMap<String, Field>();
+	for (Field field : AssertJAssertionsGeneratorMojo.class.getFields()) {
+	  if (Modifier.isStatic(field.getModifiers()) || !PARAMETER_TYPES.contains(field.getType())) continue;
+	  parameters.put(field.getName(), field);
+	}
+	return parameters;
+  }
+
+  /**
+   * Returns the configuration of the generate-assertions goal in the given module pom, the configuration of the plugin
+   * merged with the one of the execution of the goal, null if the module does not use the plugin.
+   */
+  private static Xpp3Dom configurationOf(MavenProject module) {
+	for (Object buildPlugin : module.getBuildPlugins()) {
+	  Plugin plugin = (Plugin) buildPlugin;
+	  if (!PLUGIN_KEY.equals(plugin.getKey())) continue;
+	  Xpp3Dom configuration = copyOf((Xpp3Dom) plugin.getConfiguration());
+	  for (Object pluginExecution : plugin.getExecutions()) {
+		PluginExecution execution = (PluginExecution) pluginExecution;
+		if (execution.getGoals().contains(GENERATE_ASSERTIONS_GOAL)) {
+		  Xpp3Dom executionConfiguration = copyOf((Xpp3Dom) execution.getConfiguration());
+		  configuration = Xpp3Dom.mergeXpp3Dom(executionConfiguration, configuration);
+		}
+	  }
+	  return configuration == null ? new Xpp3Dom("configuration") : configuration;
+	}
+	return null;
+  }
+
+  private static Xpp3Dom copyOf(Xpp3Dom configuration) {
+	return configuration == null ? null : new Xpp3Dom(configuration);
+  }
+
+  private static String value(Xpp3Dom parameter, MavenProject module) throws MojoFailureException {
+	return isBlank(parameter.getValue()) ? null : interpolate(parameter.getValue().trim(), parameter, module);
+  }
+
+  /**
+   * Returns the values of a list parameter, given as child elements or as a comma separated value, null if it has none.
+   */
+  private static String[] arrayValue(Xpp3Dom parameter, MavenProject module) throws MojoFailureException {
+	if (parameter.getChildCount() == 0) {
+	  String value = value(parameter, module);
+	  return value == null ? null : split(value.replaceAll("\\s", ""), ',');
+	}
+	List<String> values = new ArrayList<String>();
+	for (Xpp3Dom element : parameter.getChildren()) {
+	  if (!isBlank(element.getValue())) values.add(interpolate(element.getValue().trim(), parameter, module));
+	}
+	return values.toArray(new String[values.size()]);
+  }
+
+  private static String interpolate(String value, Xpp3Dom parameter, MavenProject module)
+	  throws MojoFailureException {
+	String baseDirectory = module.getBasedir() == null ? "" : module.getBasedir().getPath();
+	String interpolatedValue = value.replace("${project.build.directory}", module.getBuild().getDirectory())
+	                                .replace("${project.basedir}", baseDirectory)
+	                                .replace("${basedir}", baseDirectory);
+	if (interpolatedValue.contains("${")) {
+	  throw new MojoFailureException(format("Expression of parameter '%s' of %s is not supported by the %s goal : %s",
+		                                    parameter.getName(), module.getId(), GOAL, value));
+	}
+	return interpolatedValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<String> classpathOf(MavenProject module) throws Exception {
+	// test classpath elements include the compile ones
+	Set<String> classpathElements = new LinkedHashSet<String>(module.getCompileClasspathElements());
+	classpathElements.addAll(module.getTestClasspathElements());
+	return new ArrayList<String>(classpathElements);
+  }
+
+  /**
+   * Returns the jars that are in all the given classpaths, in the order of the first classpath.
+   */
+  private static List<String> sharedJarsOf(List<List<String>> classpaths) {
+	List<String> sharedJars = new ArrayList<String>();
+	for (String classpathElement : classpaths.get(0)) {
+	  if (!new File(classpathElement).isDirectory()) sharedJars.add(classpathElement);
+	}
+	for (List<String> classpath : classpaths) {
+	  sharedJars.retainAll(new HashSet<String>(classpath));
+	}
+	return sharedJars;
+  }
+
+}
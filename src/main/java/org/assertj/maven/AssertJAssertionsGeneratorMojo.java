@@ -25,21 +25,29 @@ package org.assertj.maven;
  * specific language governing permissions and limitations under the License.
  */
 
+import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
 import static org.apache.commons.lang3.ArrayUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.maven.plugins.annotations.LifecyclePhase.GENERATE_TEST_SOURCES;
 import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
 import static org.assertj.assertions.generator.AssertionsEntryPointType.BDD;
 import static org.assertj.assertions.generator.AssertionsEntryPointType.JUNIT_SOFT;
 import static org.assertj.assertions.generator.AssertionsEntryPointType.SOFT;
 import static org.assertj.assertions.generator.AssertionsEntryPointType.STANDARD;
+import static org.assertj.maven.OutputMode.ARCHIVE;
+import static org.assertj.maven.ScanScope.FULL_CLASSPATH;
+import static org.assertj.maven.ScanScope.OUTPUT_DIRS_ONLY;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CLASSLOADER;
 
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.plugin.AbstractMojo;
@@ -51,6 +59,10 @@ import org.apache.maven.project.MavenProject;
 import org.assertj.core.util.VisibleForTesting;
 import org.assertj.maven.generator.AssertionsGenerator;
 import org.assertj.maven.generator.AssertionsGeneratorReport;
+import org.assertj.maven.generator.EntryPointSharding;
+import org.assertj.maven.generator.GenerationMetrics;
+import org.assertj.maven.generator.GenerationMetrics.Checkpoint;
+import org.assertj.maven.generator.ReportFormat;
 
 /**
  * Generates custom AssertJ assertions (*Assert) for all given classes and classes of given packages.
@@ -144,6 +156,152 @@ public class AssertJAssertionsGeneratorMojo extends AbstractMojo {
   @Parameter(property = "assertj.generate.SoftAssertions")
   public boolean generateSoftAssertions = true;
 
+  /**
+   * Only regenerate assertions of classes that have changed since the previous generation, the default is false.<br>
+   * A manifest kept in the target directory records the fingerprint of each class bytecode; assertions files of
+   * classes that are not part of the input anymore are removed. Enable it with
+   * <code>&lt;incremental&gt;true&lt;/incremental&gt;</code> or <code>-Dassertj.incremental=true</code>.
+   */
+  @Parameter(defaultValue = "false", property = "assertj.incremental")
+  public boolean incremental;
+
+  /**
+   * Number of threads used to scan the classpath, convert classes and render their assertions, defaults to the number
+   * of available processors. The generated files do not depend on the number of threads.
+   */
+  @Parameter(property = "assertj.threads")
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Discover the classes of the given packages by reading their class files rather than loading every class of the
+   * packages, the default is false (the assertions generator class discovery).<br>
+   * Only classes eligible to assertions generation are then loaded, without running their static initializers. Enable
+   * it with <code>&lt;scanBytecode&gt;true&lt;/scanBytecode&gt;</code> or <code>-Dassertj.scanBytecode=true</code>.
+   */
+  @Parameter(defaultValue = "false", property = "assertj.scanBytecode")
+  public boolean scanBytecode;
+
+  /**
+   * Only write generated files whose content has changed, the default is false.<br>
+   * Unchanged files keep their timestamp so that the compiler and IDEs don't recompile them. Enable it with
+   * <code>&lt;writeChangedFilesOnly&gt;true&lt;/writeChangedFilesOnly&gt;</code> or
+   * <code>-Dassertj.writeChangedFilesOnly=true</code>.
+   */
+  @Parameter(defaultValue = "false", property = "assertj.writeChangedFilesOnly")
+  public boolean writeChangedFilesOnly;
+
+  /**
+   * Directory of the cache of rendered assertions, shared by the modules of a build and by successive builds so that
+   * assertions of unchanged classes are not rendered again.<br>
+   * There is no cache by default. Enable it by giving a directory, for example
+   * <code>&lt;cacheDirectory&gt;${user.home}/.m2/assertj-assertions-generator-cache&lt;/cacheDirectory&gt;</code> or
+   * <code>-Dassertj.cacheDirectory=...</code>.
+   */
+  @Parameter(property = "assertj.cacheDirectory")
+  public String cacheDirectory;
+
+  /**
+   * Maximum size of the assertions cache in megabytes, least recently used entries are removed when it is over this
+   * size. The default is 100.
+   */
+  @Parameter(defaultValue = "100", property = "assertj.cacheMaxSize")
+  public int cacheMaxSize = 100;
+
+  /**
+   * File where the wall time, CPU time and memory allocated by each generation phase are written as JSON, to track
+   * them on a CI server. No metrics are written by default, enable them by giving a file, for example
+   * <code>&lt;metricsFile&gt;${project.build.directory}/assertj-generator-metrics.json&lt;/metricsFile&gt;</code> or
+   * <code>-Dassertj.metricsFile=...</code>.
+   */
+  @Parameter(property = "assertj.metricsFile")
+  public String metricsFile;
+
+  /**
+   * Format of the generation report: <code>console</code> (the default) logs the whole report, <code>jsonl</code> or
+   * <code>csv</code> stream the report entries to an <code>assertj-generator-report.jsonl|csv</code> file in the
+   * reportDirectory as they are produced, the console report then only lists the first reportConsoleEntriesLimit
+   * entries of each kind.
+   */
+  @Parameter(defaultValue = "console", property = "assertj.reportFormat")
+  public String reportFormat = "console";
+
+  /**
+   * Directory of the streamed report file, defaults to the project build directory.
+   */
+  @Parameter(defaultValue = "${project.build.directory}", property = "assertj.reportDirectory")
+  public String reportDirectory;
+
+  /**
+   * Number of entries of each kind listed in the console when the report is streamed to a file, the default is 20.
+   */
+  @Parameter(defaultValue = "20", property = "assertj.reportConsoleEntriesLimit")
+  public int reportConsoleEntriesLimit = 20;
+
+  /**
+   * Reuse the class loader of the project classpath across executions in the same JVM while the classpath is unchanged
+   * (Maven daemon, IDE embedded Maven), the default is false.<br>
+   * Enable it with <code>&lt;reuseClassLoader&gt;true&lt;/reuseClassLoader&gt;</code> or
+   * <code>-Dassertj.reuseClassLoader=true</code>. Reused class loaders keep their jars open between executions.
+   */
+  @Parameter(defaultValue = "false", property = "assertj.reuseClassLoader")
+  public boolean reuseClassLoader;
+
+  /**
+   * Where classes of the given packages are searched: <code>OUTPUT_DIRS_ONLY</code> (the project classes and test
+   * classes), <code>PROJECT_AND_REACTOR</code> (plus the classes of the other reactor projects) or
+   * <code>FULL_CLASSPATH</code> (plus the dependencies), the default. The whole classpath is still used to load the
+   * classes and the types they refer to.
+   */
+  @Parameter(defaultValue = "full_classpath", property = "assertj.scanScope")
+  public String scanScope = "full_classpath";
+
+  /**
+   * <code>DIRECTORY</code> (the default) generates a source file per assertion class in <code>targetDir</code>, added
+   * to the test sources. <code>ARCHIVE</code> generates all the sources in a single <code>targetDir</code>.jar archive
+   * and compiles them in the test classes directory, which saves creating (and cleaning) thousands of files.<br>
+   * The archive is written with the <code>project.build.sourceEncoding</code> encoding and compiled by the JDK running
+   * Maven with the <code>maven.compiler.testRelease/release</code> property, or else the
+   * <code>maven.compiler.testSource/source</code> and <code>maven.compiler.testTarget/target</code> ones. It is only
+   * compiled again when it has changed, the class files of its previous compilation (listed in
+   * <code>targetDir</code>.jar.classes) being deleted first. The maven-compiler-plugin configuration (compiler
+   * arguments, annotation processors, toolchains, forked compiler) does not apply and IDEs don't see the generated
+   * sources, use the <code>DIRECTORY</code> mode if you need them.
+   */
+  @Parameter(defaultValue = "directory", property = "assertj.outputMode")
+  public String outputMode = "directory";
+
+  /**
+   * <code>NONE</code> (the default) generates a single set of entry points for all the classes, <code>PACKAGE</code>
+   * generates a set of entry points per package, in the package (entryPointClassPackage is then ignored), so that javac
+   * compiles smaller entry points and only recompiles the entry points of the packages whose classes have changed.
+   */
+  @Parameter(defaultValue = "none", property = "assertj.entryPointSharding")
+  public String entryPointSharding = "none";
+
+  /**
+   * When positive, <code>PACKAGE</code> sharded entry points are generated per group of packages sharing their first
+   * entryPointShardPackageDepth package names rather than per package, the default is 0.
+   */
+  @Parameter(defaultValue = "0", property = "assertj.entryPointShardPackageDepth")
+  public int entryPointShardPackageDepth;
+
+  /**
+   * Only generate assertions for the classes of the given packages that the test sources use (refer to them or to their
+   * assertions), plus their superclasses with hierarchical assertions, the default is false. Classes given with the
+   * classes parameter are always generated. The test sources are indexed in the project build directory so that only
+   * the changed ones are read again.
+   */
+  @Parameter(defaultValue = "false", property = "assertj.generateUsedClassesOnly")
+  public boolean generateUsedClassesOnly;
+
+  /**
+   * Directory of custom assertions templates to use instead of the default ones. Templates are loaded once per JVM and
+   * loaded again when the directory content changes, the assertions generated with other templates are then
+   * regenerated.
+   */
+  @Parameter(property = "assertj.templatesDirectory")
+  public String templatesDirectory;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
 	if (skip) {
@@ -151,11 +309,49 @@ public class AssertJAssertionsGeneratorMojo extends AbstractMojo {
 	  return;
 	}
 	failIfMojoParametersAreMissing();
+	GenerationMetrics metrics = new GenerationMetrics();
+	Checkpoint checkpoint = metrics.start();
+	ProjectClassLoader projectClassLoader = acquireProjectClassLoader();
+	metrics.record(CLASSLOADER, checkpoint);
+	try {
+	  executeWithClassLoader(projectClassLoader.getClassLoader(), metrics);
+	} finally {
+	  try {
+		projectClassLoader.release();
+	  } catch (IOException e) {
+		getLog().debug("Could not close the project class loader : " + e);
+	  }
+	}
+  }
+
+  void executeWithClassLoader(ClassLoader projectClassLoader, GenerationMetrics metrics) throws MojoExecutionException {
 	try {
-	  ClassLoader projectClassLoader = getProjectClassLoader();
 	  AssertionsGenerator assertionGenerator = new AssertionsGenerator(projectClassLoader);
+	  if (!isBlank(templatesDirectory)) assertionGenerator.setTemplatesDirectory(new File(templatesDirectory));
+	  assertionGenerator.setGenerationMetrics(metrics);
+	  ReportFormat format = ReportFormat.valueOf(reportFormat.toUpperCase(Locale.ENGLISH));
+	  if (format.isStreamed()) {
+		File reportFile = new File(reportDirectory, "assertj-generator-report." + format.getFileExtension());
+		assertionGenerator.setReportFile(reportFile, format, reportConsoleEntriesLimit);
+	  }
+	  ScanScope scope = ScanScope.valueOf(scanScope.toUpperCase(Locale.ENGLISH));
+	  if (scope != FULL_CLASSPATH) assertionGenerator.setScanRoots(scanRootsOf(scope));
+	  if (isArchiveOutput()) assertionGenerator.setOutputArchive(outputArchive(), sourceEncoding());
+	  EntryPointSharding sharding = EntryPointSharding.valueOf(entryPointSharding.toUpperCase(Locale.ENGLISH));
+	  assertionGenerator.setEntryPointSharding(sharding, entryPointShardPackageDepth);
+	  if (generateUsedClassesOnly) {
+		File usageIndexFile = new File(project.getBuild().getDirectory(), "assertj-test-sources.index");
+		assertionGenerator.setUsageSources(testSourceRoots(), usageIndexFile);
+	  }
 	  assertionGenerator.setIncludePatterns(includes);
 	  assertionGenerator.setExcludePatterns(excludes);
+	  assertionGenerator.setIncremental(incremental);
+	  assertionGenerator.setThreads(threads);
+	  assertionGenerator.setScanBytecode(scanBytecode);
+	  assertionGenerator.setWriteChangedFilesOnly(writeChangedFilesOnly);
+	  if (!isBlank(cacheDirectory)) {
+		assertionGenerator.setCacheDirectory(new File(cacheDirectory), cacheMaxSize * 1024L * 1024L);
+	  }
 	  if (generateAssertions) assertionGenerator.enableEntryPointClassesGenerationFor(STANDARD);
 	  if (generateBddAssertions) assertionGenerator.enableEntryPointClassesGenerationFor(BDD);
 	  if (generateSoftAssertions) assertionGenerator.enableEntryPointClassesGenerationFor(SOFT);
@@ -171,31 +367,143 @@ public class AssertJAssertionsGeneratorMojo extends AbstractMojo {
   }
 
   @VisibleForTesting
-  AssertionsGeneratorReport executeWithAssertionGenerator(AssertionsGenerator assertionGenerator) {
+  AssertionsGeneratorReport executeWithAssertionGenerator(AssertionsGenerator assertionGenerator)
+	  throws MojoExecutionException {
 	if (classes == null) classes = new String[0];
 	AssertionsGeneratorReport generatorReport = assertionGenerator.generateAssertionsFor(packages, classes, targetDir,
 	                                                                                     entryPointClassPackage,
 	                                                                                     hierarchical);
 	getLog().info(generatorReport.getReportContent());
-	project.addTestCompileSourceRoot(targetDir);
+	if (!isBlank(metricsFile)) writeMetrics(generatorReport.getGenerationMetrics());
+	if (!isArchiveOutput()) project.addTestCompileSourceRoot(targetDir);
+	else if (generatorReport.getReportedException() == null) compileOutputArchive();
 	return generatorReport;
   }
 
-  private void failIfMojoParametersAreMissing() throws MojoFailureException {
+  /**
+   * Returns the test source roots, except the generated assertions one.
+   */
+  @SuppressWarnings("unchecked")
+  private List<File> testSourceRoots() {
+	File generatedSourcesRoot = new File(targetDir).getAbsoluteFile();
+	List<File> testSourceRoots = new ArrayList<File>();
+	for (String testSourceRoot : (List<String>) project.getTestCompileSourceRoots()) {
+	  File root = new File(testSourceRoot).getAbsoluteFile();
+	  if (!root.equals(generatedSourcesRoot)) testSourceRoots.add(root);
+	}
+	return testSourceRoots;
+  }
+
+  private boolean isArchiveOutput() {
+	return OutputMode.valueOf(outputMode.toUpperCase(Locale.ENGLISH)) == ARCHIVE;
+  }
+
+  private File outputArchive() {
+	return new File(targetDir + ".jar");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void compileOutputArchive() throws MojoExecutionException {
+	File archive = outputArchive();
+	if (!archive.isFile()) return;
+	try {
+	  Set<String> classpathElements = new LinkedHashSet<String>(project.getCompileClasspathElements());
+	  classpathElements.addAll(project.getTestClasspathElements());
+	  List<String> compilerOptions = new ArrayList<String>();
+	  // javac refuses -source and -target along with --release
+	  addCompilerOption("--release", "maven.compiler.testRelease", "maven.compiler.release", compilerOptions);
+	  if (compilerOptions.isEmpty()) {
+		addCompilerOption("-source", "maven.compiler.testSource", "maven.compiler.source", compilerOptions);
+		addCompilerOption("-target", "maven.compiler.testTarget", "maven.compiler.target", compilerOptions);
+	  }
+	  File testClassesDirectory = new File(project.getBuild().getTestOutputDirectory());
+	  ArchiveCompiler compiler = new ArchiveCompiler(new ArrayList<String>(classpathElements), compilerOptions,
+		                                             sourceEncoding());
+	  int compiledSourcesCount = compiler.compile(archive, testClassesDirectory);
+	  if (compiledSourcesCount == 0) {
+		getLog().info(format("Classes of %s are up to date in %s", archive, testClassesDirectory));
+	  } else {
+		getLog().info(format("Compiled %d generated sources of %s to %s", compiledSourcesCount, archive,
+		                     testClassesDirectory));
+	  }
+	} catch (Exception e) {
+	  throw new MojoExecutionException(e.getMessage(), e);
+	}
+  }
+
+  /**
+   * Returns the <code>project.build.sourceEncoding</code> charset, the platform one if it is not set.
+   */
+  private Charset sourceEncoding() {
+	String sourceEncoding = project.getProperties().getProperty("project.build.sourceEncoding");
+	return isBlank(sourceEncoding) ? Charset.defaultCharset() : Charset.forName(sourceEncoding);
+  }
+
+  private void addCompilerOption(String option, String testProperty, String property, List<String> compilerOptions) {
+	String value = project.getProperties().getProperty(testProperty, project.getProperties().getProperty(property));
+	if (isBlank(value)) return;
+	compilerOptions.add(option);
+	compilerOptions.add(value);
+  }
+
+  void failIfMojoParametersAreMissing() throws MojoFailureException {
 	if (isEmpty(packages) && isEmpty(classes)) {
 	  throw new MojoFailureException(shouldHaveNonEmptyPackagesOrClasses());
 	}
   }
 
   @SuppressWarnings("unchecked")
-  private ClassLoader getProjectClassLoader() throws DependencyResolutionRequiredException, MalformedURLException {
-	List<String> classpathElements = new ArrayList<String>(project.getCompileClasspathElements());
+  private ProjectClassLoader acquireProjectClassLoader() throws MojoExecutionException {
+	try {
+	  // test classpath elements include the compile ones
+	  Set<String> classpathElements = new LinkedHashSet<String>(project.getCompileClasspathElements());
+	  classpathElements.addAll(project.getTestClasspathElements());
+	  ClassLoader parent = Thread.currentThread().getContextClassLoader();
+	  return ProjectClassLoader.acquire(new ArrayList<String>(classpathElements), parent, reuseClassLoader);
+	} catch (Exception e) {
+	  throw new MojoExecutionException(e.getMessage(), e);
+	}
+  }
+
+  /**
+   * Returns the project output directories and, for the reactor scope, the classpath elements of the other reactor
+   * projects, that is the classpath directories (reactor projects classes resolved before packaging) and the elements
+   * in the build directory of a referenced project.
+   */
+  @SuppressWarnings("unchecked")
+  private List<File> scanRootsOf(ScanScope scope) throws DependencyResolutionRequiredException {
+	List<File> scanRoots = newArrayList(new File(project.getBuild().getOutputDirectory()),
+	                                    new File(project.getBuild().getTestOutputDirectory()));
+	if (scope == OUTPUT_DIRS_ONLY) return scanRoots;
+	List<String> reactorBuildDirectories = new ArrayList<String>();
+	for (Object referencedProject : project.getProjectReferences().values()) {
+	  File buildDirectory = new File(((MavenProject) referencedProject).getBuild().getDirectory());
+	  reactorBuildDirectories.add(buildDirectory.getAbsolutePath() + File.separator);
+	}
+	Set<String> classpathElements = new LinkedHashSet<String>(project.getCompileClasspathElements());
 	classpathElements.addAll(project.getTestClasspathElements());
-	List<URL> classpathElementUrls = new ArrayList<URL>(classpathElements.size());
-	for (int i = 0; i < classpathElements.size(); i++) {
-	  classpathElementUrls.add(new File(classpathElements.get(i)).toURI().toURL());
+	for (String classpathElement : classpathElements) {
+	  File classpathFile = new File(classpathElement).getAbsoluteFile();
+	  if (classpathFile.isDirectory() || startsWithAny(classpathFile.getPath(), reactorBuildDirectories)) {
+		scanRoots.add(classpathFile);
+	  }
+	}
+	return scanRoots;
+  }
+
+  private static boolean startsWithAny(String path, List<String> prefixes) {
+	for (String prefix : prefixes) {
+	  if (path.startsWith(prefix)) return true;
+	}
+	return false;
+  }
+
+  private void writeMetrics(GenerationMetrics metrics) {
+	try {
+	  metrics.writeJsonTo(new File(metricsFile));
+	} catch (IOException e) {
+	  getLog().warn("Could not write generation metrics to " + metricsFile + " : " + e);
 	}
-	return new URLClassLoader(classpathElementUrls.toArray(new URL[0]), Thread.currentThread().getContextClassLoader());
   }
 
   @VisibleForTesting
@@ -0,0 +1,166 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.assertj.core.util.VisibleForTesting;
+import org.assertj.maven.generator.GenerationMetrics;
+
+/**
+ * Generates the assertions like the <code>generate-assertions</code> goal, then keeps watching the project classes and
+ * regenerates the assertions each time they are recompiled (by an IDE for example), until the build is stopped.
+ * <p>
+ * The assertions templates and the class loader of the classpath jars are kept between generations, only the classes
+ * directories get a new class loader so that recompiled classes are loaded again. The generation is incremental: only
+ * the assertions of the changed classes are regenerated, and the entry points when classes are added or removed.
+ * <p>
+ * Classes directories are polled every watchInterval milliseconds, a generation starts once they have not changed for
+ * watchQuietPeriod milliseconds so that a whole compilation is taken at once. The test classes directory is not watched
+ * since it receives the compiled assertions.
+ */
+@Mojo(name = "watch", requiresDependencyResolution = TEST, requiresProject = true)
+public class AssertJAssertionsWatchMojo extends AssertJAssertionsGeneratorMojo {
+
+  /**
+   * Milliseconds between two checks of the classes directories, the default is 500.
+   */
+  @Parameter(defaultValue = "500", property = "assertj.watchInterval")
+  public long watchInterval = 500;
+
+  /**
+   * Milliseconds without changes in the classes directories before generating the assertions, the default is 200.
+   */
+  @Parameter(defaultValue = "200", property = "assertj.watchQuietPeriod")
+  public long watchQuietPeriod = 200;
+
+  private IndexedClassLoader jarsClassLoader;
+  private List<String> classesDirectories;
+  private List<String> watchedDirectories;
+  private String watchedDirectoriesFingerprint;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+	if (skip) {
+	  getLog().info("Assertions generator is disabled as 'skip' option is true.");
+	  return;
+	}
+	failIfMojoParametersAreMissing();
+	startWatching();
+	try {
+	  getLog().info("Watching " + watchedDirectories + " for classes changes, stop the build to stop watching.");
+	  while (true) {
+		Thread.sleep(watchInterval);
+		generateIfClassesChanged();
+	  }
+	} catch (InterruptedException e) {
+	  Thread.currentThread().interrupt();
+	} finally {
+	  stopWatching();
+	}
+  }
+
+  /**
+   * Builds the class loader of the classpath jars and the assertion generator kept between generations, then generates
+   * the assertions.
+   */
+  @VisibleForTesting
+  @SuppressWarnings("unchecked")
+  void startWatching() throws MojoExecutionException {
+	// the manifest tells which assertions are outdated
+	incremental = true;
+	try {
+	  // test classpath elements include the compile ones
+	  Set<String> classpathElements = new LinkedHashSet<String>(project.getCompileClasspathElements());
+	  classpathElements.addAll(project.getTestClasspathElements());
+	  List<String> jars = new ArrayList<String>();
+	  classesDirectories = new ArrayList<String>();
+	  watchedDirectories = new ArrayList<String>();
+	  File testClassesDirectory = new File(project.getBuild().getTestOutputDirectory()).getAbsoluteFile();
+	  for (String classpathElement : classpathElements) {
+		File classpathFile = new File(classpathElement).getAbsoluteFile();
+		if (!classpathFile.isDirectory()) {
+		  jars.add(classpathElement);
+		  continue;
+		}
+		classesDirectories.add(classpathElement);
+		if (!classpathFile.equals(testClassesDirectory)) watchedDirectories.add(classpathElement);
+	  }
+	  jarsClassLoader = IndexedClassLoader.of(jars, Thread.currentThread().getContextClassLoader());
+	} catch (Exception e) {
+	  throw new MojoExecutionException(e.getMessage(), e);
+	}
+	watchedDirectoriesFingerprint = ProjectClassLoader.fingerprintOf(watchedDirectories);
+	generate();
+  }
+
+  /**
+   * Generates the assertions if the watched directories have changed since the last generation, once they stop
+   * changing.
+   *
+   * @return true if the assertions have been generated.
+   */
+  @VisibleForTesting
+  boolean generateIfClassesChanged() throws InterruptedException {
+	String fingerprint = ProjectClassLoader.fingerprintOf(watchedDirectories);
+	if (fingerprint.equals(watchedDirectoriesFingerprint)) return false;
+	// compilers write class files one by one, waits for the end of the compilation
+	for (String previousFingerprint = null; !fingerprint.equals(previousFingerprint);) {
+	  previousFingerprint = fingerprint;
+	  Thread.sleep(watchQuietPeriod);
+	  fingerprint = ProjectClassLoader.fingerprintOf(watchedDirectories);
+	}
+	watchedDirectoriesFingerprint = fingerprint;
+	generate();
+	return true;
+  }
+
+  private void generate() {
+	long start = System.nanoTime();
+	try {
+	  IndexedClassLoader classesClassLoader = IndexedClassLoader.of(classesDirectories, jarsClassLoader);
+	  try {
+		executeWithClassLoader(classesClassLoader, new GenerationMetrics());
+	  } finally {
+		classesClassLoader.close();
+	  }
+	  getLog().info(format("Assertions generated in %d ms", NANOSECONDS.toMillis(System.nanoTime() - start)));
+	} catch (Exception e) {
+	  // the next compilation may fix it, keeps watching
+	  getLog().error("Assertions generation failed : " + e.getMessage(), e);
+	}
+  }
+
+  @VisibleForTesting
+  void stopWatching() {
+	try {
+	  if (jarsClassLoader != null) jarsClassLoader.close();
+	} catch (IOException e) {
+	  getLog().debug("Could not close the classpath jars class loader : " + e);
+	}
+  }
+
+}
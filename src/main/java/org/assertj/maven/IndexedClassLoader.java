@@ -0,0 +1,520 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static com.google.common.io.ByteStreams.toByteArray;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A class loader of the project classpath that looks classes and resources up in an index of the classpath jars by
+ * directory, instead of searching every entry in turn like {@link URLClassLoader} does.
+ * <p>
+ * The index is built once from the central directory of the jars, duplicated entries being ignored. Looking a class or
+ * a resource up only searches the jars that have its directory (its package for a class) and the classpath
+ * directories, in the classpath order, and is thus independent of the number of jars. Directories are not indexed but
+ * looked up directly, so that the files compiled in them after the class loader creation are found. Manifest
+ * <code>Class-Path</code> attributes are not followed, Maven classpaths being already resolved.
+ * <p>
+ * On Java 9 and later, multi-release jars are opened for the running Java version. Jars are opened again when needed
+ * after {@link #closeJars()}, which lets a cached class loader release its file handles between uses.
+ * <p>
+ * Like {@link URLClassLoader}, the parent class loader is searched first.
+ */
+class IndexedClassLoader extends URLClassLoader implements Closeable {
+
+  private static final String CLASS_FILE_EXTENSION = ".class";
+
+  private final List<ClasspathEntry> classpathEntries;
+  // looked up for every class and resource, in the classpath order
+  private final List<ClasspathEntry> directoryEntries = new ArrayList<ClasspathEntry>();
+  // the jars having files in a directory or its subdirectories, in the classpath order
+  private final Map<String, List<ClasspathEntry>> jarEntriesByDirectory = new HashMap<String, List<ClasspathEntry>>();
+  private volatile boolean closed;
+
+  private IndexedClassLoader(List<ClasspathEntry> classpathEntries, ClassLoader parent) {
+	super(urlsOf(classpathEntries), parent);
+	this.classpathEntries = classpathEntries;
+	for (int i = 0; i < classpathEntries.size(); i++) {
+	  ClasspathEntry classpathEntry = classpathEntries.get(i);
+	  classpathEntry.position = i;
+	  classpathEntry.index(this);
+	}
+  }
+
+  /**
+   * Creates a class loader of the given classpath elements, duplicated and missing elements are ignored.
+   */
+  static IndexedClassLoader of(List<String> classpathElements, ClassLoader parent) throws IOException {
+	Set<File> files = new LinkedHashSet<File>();
+	for (String classpathElement : classpathElements) {
+	  files.add(new File(classpathElement).getAbsoluteFile());
+	}
+	List<ClasspathEntry> classpathEntries = new ArrayList<ClasspathEntry>(files.size());
+	try {
+	  for (File file : files) {
+		if (file.isDirectory()) classpathEntries.add(new DirectoryClasspathEntry(file));
+		else if (file.isFile()) {
+		  ClasspathEntry jarEntry = JarClasspathEntry.open(file);
+		  if (jarEntry != null) classpathEntries.add(jarEntry);
+		}
+	  }
+	} catch (IOException e) {
+	  close(classpathEntries);
+	  throw e;
+	}
+	return new IndexedClassLoader(classpathEntries, parent);
+  }
+
+  private static URL[] urlsOf(List<ClasspathEntry> classpathEntries) {
+	URL[] urls = new URL[classpathEntries.size()];
+	for (int i = 0; i < urls.length; i++) {
+	  urls[i] = classpathEntries.get(i).url;
+	}
+	return urls;
+  }
+
+  private void addToIndex(String directory, ClasspathEntry classpathEntry) {
+	List<ClasspathEntry> directoryEntries = jarEntriesByDirectory.get(directory);
+	if (directoryEntries == null) {
+	  directoryEntries = new ArrayList<ClasspathEntry>(1);
+	  jarEntriesByDirectory.put(directory, directoryEntries);
+	} else if (directoryEntries.get(directoryEntries.size() - 1) == classpathEntry) {
+	  // entries are indexed one after the other, the parent directories are already indexed too
+	  return;
+	}
+	directoryEntries.add(classpathEntry);
+	if (directory.length() > 0) addToIndex(directoryOf(directory), classpathEntry);
+  }
+
+  private static String directoryOf(String path) {
+	int lastSlash = path.lastIndexOf('/');
+	return lastSlash == -1 ? "" : path.substring(0, lastSlash);
+  }
+
+  /**
+   * Returns the classpath entries that may have files in the given directory, in the classpath order: the jars indexed
+   * with this directory and all the classpath directories.
+   */
+  private List<ClasspathEntry> classpathEntriesOf(String directory) {
+	if (closed) return Collections.emptyList();
+	List<ClasspathEntry> jarEntries = jarEntriesByDirectory.get(directory);
+	if (jarEntries == null) return directoryEntries;
+	if (directoryEntries.isEmpty()) return jarEntries;
+	List<ClasspathEntry> classpathEntriesOfDirectory = new ArrayList<ClasspathEntry>(jarEntries.size()
+	                                                                                 + directoryEntries.size());
+	int jarIndex = 0;
+	int directoryIndex = 0;
+	while (jarIndex < jarEntries.size() || directoryIndex < directoryEntries.size()) {
+	  if (directoryIndex == directoryEntries.size() || jarIndex < jarEntries.size()
+		  && jarEntries.get(jarIndex).position < directoryEntries.get(directoryIndex).position) {
+		classpathEntriesOfDirectory.add(jarEntries.get(jarIndex++));
+	  } else {
+		classpathEntriesOfDirectory.add(directoryEntries.get(directoryIndex++));
+	  }
+	}
+	return classpathEntriesOfDirectory;
+  }
+
+  private List<ClasspathEntry> classpathEntriesWith(String path) {
+	List<ClasspathEntry> classpathEntriesWithPath = new ArrayList<ClasspathEntry>(1);
+	for (ClasspathEntry classpathEntry : classpathEntriesOf(directoryOf(path))) {
+	  if (classpathEntry.contains(path)) classpathEntriesWithPath.add(classpathEntry);
+	}
+	return classpathEntriesWithPath;
+  }
+
+  private ClasspathEntry firstClasspathEntryWith(String path) {
+	for (ClasspathEntry classpathEntry : classpathEntriesOf(directoryOf(path))) {
+	  if (classpathEntry.contains(path)) return classpathEntry;
+	}
+	return null;
+  }
+
+  private List<ClasspathEntry> classpathEntriesWithDirectory(String path) {
+	List<ClasspathEntry> classpathEntriesWithDirectory = new ArrayList<ClasspathEntry>(1);
+	for (ClasspathEntry classpathEntry : classpathEntriesOf(path)) {
+	  if (classpathEntry.hasDirectory(path)) classpathEntriesWithDirectory.add(classpathEntry);
+	}
+	return classpathEntriesWithDirectory;
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+	String path = name.replace('.', '/') + CLASS_FILE_EXTENSION;
+	ClasspathEntry classpathEntry = firstClasspathEntryWith(path);
+	if (classpathEntry == null) throw new ClassNotFoundException(name);
+	try {
+	  byte[] bytecode = classpathEntry.read(path);
+	  definePackageOf(name, classpathEntry);
+	  return defineClass(name, bytecode, 0, bytecode.length, new CodeSource(classpathEntry.url, (Certificate[]) null));
+	} catch (IOException e) {
+	  throw new ClassNotFoundException(name, e);
+	}
+  }
+
+  private void definePackageOf(String className, ClasspathEntry classpathEntry) throws IOException {
+	int lastDot = className.lastIndexOf('.');
+	if (lastDot == -1) return;
+	String packageName = className.substring(0, lastDot);
+	if (getPackage(packageName) != null) return;
+	try {
+	  Manifest manifest = classpathEntry.getManifest();
+	  if (manifest == null) definePackage(packageName, null, null, null, null, null, null, null);
+	  else definePackage(packageName, manifest, classpathEntry.url);
+	} catch (IllegalArgumentException e) {
+	  // defined in the meantime by another thread
+	}
+  }
+
+  @Override
+  public URL findResource(String name) {
+	String path = pathOf(name);
+	ClasspathEntry classpathEntry = firstClasspathEntryWith(path);
+	if (classpathEntry != null) return classpathEntry.urlOf(path);
+	List<ClasspathEntry> classpathEntriesWithDirectory = classpathEntriesWithDirectory(path);
+	return classpathEntriesWithDirectory.isEmpty() ? null : classpathEntriesWithDirectory.get(0).urlOf(path);
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) throws IOException {
+	String path = pathOf(name);
+	List<ClasspathEntry> classpathEntriesWithPath = classpathEntriesWith(path);
+	if (classpathEntriesWithPath.isEmpty()) classpathEntriesWithPath = classpathEntriesWithDirectory(path);
+	List<URL> urls = new ArrayList<URL>(classpathEntriesWithPath.size());
+	for (ClasspathEntry classpathEntry : classpathEntriesWithPath) {
+	  urls.add(classpathEntry.urlOf(path));
+	}
+	return Collections.enumeration(urls);
+  }
+
+  /**
+   * Reads the resources of the classpath entries directly, without going through their URL and the jar files cache of
+   * the JDK.
+   */
+  @Override
+  public InputStream getResourceAsStream(String name) {
+	ClassLoader parent = getParent();
+	if (parent == null) return super.getResourceAsStream(name);
+	InputStream resource = parent.getResourceAsStream(name);
+	if (resource != null) return resource;
+	String path = pathOf(name);
+	ClasspathEntry classpathEntry = firstClasspathEntryWith(path);
+	try {
+	  return classpathEntry == null ? null : classpathEntry.open(path);
+	} catch (IOException e) {
+	  return null;
+	}
+  }
+
+  private static String pathOf(String name) {
+	return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+  }
+
+  /**
+   * Closes the jars of the classpath to release their file handles, they are opened again when a class or a resource
+   * is looked up.
+   */
+  void closeJars() throws IOException {
+	close(classpathEntries);
+  }
+
+  /**
+   * Closes the jars of the classpath, classes and resources can't be loaded anymore.
+   */
+  @Override
+  public void close() throws IOException {
+	closed = true;
+	try {
+	  close(classpathEntries);
+	} finally {
+	  super.close();
+	}
+  }
+
+  private static void close(List<ClasspathEntry> classpathEntries) throws IOException {
+	IOException closeFailure = null;
+	for (ClasspathEntry classpathEntry : classpathEntries) {
+	  try {
+		classpathEntry.close();
+	  } catch (IOException e) {
+		closeFailure = e;
+	  }
+	}
+	if (closeFailure != null) throw closeFailure;
+  }
+
+  private abstract static class ClasspathEntry {
+	final URL url;
+	int position;
+
+	ClasspathEntry(URL url) {
+	  this.url = url;
+	}
+
+	abstract void index(IndexedClassLoader classLoader);
+
+	abstract boolean contains(String path);
+
+	/**
+	 * Returns true if this entry has files in the given directory, only called for a directory this entry is looked up
+	 * for.
+	 */
+	abstract boolean hasDirectory(String path);
+
+	abstract InputStream open(String path) throws IOException;
+
+	abstract URL urlOf(String path);
+
+	abstract Manifest getManifest() throws IOException;
+
+	abstract void close() throws IOException;
+
+	byte[] read(String path) throws IOException {
+	  InputStream content = open(path);
+	  try {
+		return toByteArray(content);
+	  } finally {
+		content.close();
+	  }
+	}
+  }
+
+  private static class DirectoryClasspathEntry extends ClasspathEntry {
+	private final File directory;
+
+	DirectoryClasspathEntry(File directory) throws MalformedURLException {
+	  super(directory.toURI().toURL());
+	  this.directory = directory;
+	}
+
+	@Override
+	void index(IndexedClassLoader classLoader) {
+	  // looked up directly
+	  classLoader.directoryEntries.add(this);
+	}
+
+	@Override
+	boolean contains(String path) {
+	  return new File(directory, path).isFile();
+	}
+
+	@Override
+	boolean hasDirectory(String path) {
+	  return new File(directory, path).isDirectory();
+	}
+
+	@Override
+	InputStream open(String path) throws IOException {
+	  return new FileInputStream(new File(directory, path));
+	}
+
+	@Override
+	URL urlOf(String path) {
+	  try {
+		return new File(directory, path).toURI().toURL();
+	  } catch (MalformedURLException e) {
+		return null;
+	  }
+	}
+
+	@Override
+	Manifest getManifest() throws IOException {
+	  File manifestFile = new File(directory, JarFile.MANIFEST_NAME);
+	  if (!manifestFile.isFile()) return null;
+	  InputStream manifest = new FileInputStream(manifestFile);
+	  try {
+		return new Manifest(manifest);
+	  } finally {
+		manifest.close();
+	  }
+	}
+
+	@Override
+	void close() {}
+  }
+
+  private static class JarClasspathEntry extends ClasspathEntry {
+	private static final Pattern VERSIONED_ENTRY_PREFIX = Pattern.compile("^META-INF/versions/\\d+/");
+	// JarFile(File, boolean, int, Runtime.Version) and the running Java version, null before Java 9
+	private static final Constructor<JarFile> VERSIONED_JAR_FILE_CONSTRUCTOR;
+	private static final Object RUNTIME_VERSION;
+	// JarEntry.getRealName(), the versioned name of an entry, null before Java 10
+	private static final Method REAL_NAME_METHOD;
+	static {
+	  Constructor<JarFile> versionedJarFileConstructor = null;
+	  Object runtimeVersion = null;
+	  Method realNameMethod = null;
+	  try {
+		Class<?> versionClass = Class.forName("java.lang.Runtime$Version");
+		runtimeVersion = Runtime.class.getMethod("version").invoke(null);
+		versionedJarFileConstructor = JarFile.class.getConstructor(File.class, boolean.class, int.class,
+		                                                           versionClass);
+		realNameMethod = JarEntry.class.getMethod("getRealName");
+	  } catch (Exception e) {
+		// no multi-release jars before Java 9
+	  }
+	  VERSIONED_JAR_FILE_CONSTRUCTOR = versionedJarFileConstructor;
+	  RUNTIME_VERSION = runtimeVersion;
+	  REAL_NAME_METHOD = realNameMethod;
+	}
+
+	private final File jar;
+	// guarded by this, null once closed until a file of the jar is looked up again
+	private JarFile jarFile;
+	private volatile Manifest manifest;
+	private volatile boolean manifestRead;
+
+	private JarClasspathEntry(File jar, JarFile jarFile) throws MalformedURLException {
+	  super(jar.toURI().toURL());
+	  this.jar = jar;
+	  this.jarFile = jarFile;
+	}
+
+	static JarClasspathEntry open(File jar) throws IOException {
+	  JarFile jarFile;
+	  try {
+		// reads the central directory once, entries are then looked up by name
+		jarFile = openJarFile(jar);
+	  } catch (IOException e) {
+		// not a jar, URLClassLoader ignores it too
+		return null;
+	  }
+	  return new JarClasspathEntry(jar, jarFile);
+	}
+
+	/**
+	 * Opens the given jar without verifying it, a multi-release jar giving the entries of the running Java version.
+	 */
+	private static JarFile openJarFile(File jar) throws IOException {
+	  if (VERSIONED_JAR_FILE_CONSTRUCTOR == null) return new JarFile(jar, false);
+	  try {
+		return VERSIONED_JAR_FILE_CONSTRUCTOR.newInstance(jar, false, ZipFile.OPEN_READ, RUNTIME_VERSION);
+	  } catch (InvocationTargetException e) {
+		if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+		throw new IOException(e.getCause());
+	  } catch (Exception e) {
+		return new JarFile(jar, false);
+	  }
+	}
+
+	private synchronized JarFile jarFile() throws IOException {
+	  if (jarFile == null) jarFile = openJarFile(jar);
+	  return jarFile;
+	}
+
+	@Override
+	synchronized void index(IndexedClassLoader classLoader) {
+	  classLoader.addToIndex("", this);
+	  Enumeration<? extends ZipEntry> entries = jarFile.entries();
+	  while (entries.hasMoreElements()) {
+		// the versioned entries of a multi-release jar are looked up with their unversioned path
+		String path = VERSIONED_ENTRY_PREFIX.matcher(pathOf(entries.nextElement().getName())).replaceFirst("");
+		classLoader.addToIndex(directoryOf(path), this);
+	  }
+	}
+
+	@Override
+	boolean hasDirectory(String path) {
+	  // jars are only looked up for the directories they have been indexed with
+	  return true;
+	}
+
+	@Override
+	boolean contains(String path) {
+	  try {
+		ZipEntry entry = jarFile().getEntry(path);
+		return entry != null && !entry.isDirectory();
+	  } catch (IOException e) {
+		return false;
+	  }
+	}
+
+	@Override
+	InputStream open(String path) throws IOException {
+	  JarFile jarFile = jarFile();
+	  ZipEntry entry = jarFile.getEntry(path);
+	  if (entry == null) throw new IOException(path + " not found in " + jarFile.getName());
+	  return jarFile.getInputStream(entry);
+	}
+
+	/**
+	 * Returns the URL of the given entry, the one of its versioned entry in a multi-release jar since the URL handler
+	 * of the JDK reads jars without their versions.
+	 */
+	@Override
+	URL urlOf(String path) {
+	  try {
+		return new URL("jar:" + url + "!/" + realNameOf(path));
+	  } catch (MalformedURLException e) {
+		return null;
+	  }
+	}
+
+	private String realNameOf(String path) {
+	  if (REAL_NAME_METHOD == null) return path;
+	  try {
+		JarEntry entry = jarFile().getJarEntry(path);
+		return entry == null ? path : (String) REAL_NAME_METHOD.invoke(entry);
+	  } catch (Exception e) {
+		return path;
+	  }
+	}
+
+	@Override
+	Manifest getManifest() throws IOException {
+	  if (!manifestRead) {
+		manifest = jarFile().getManifest();
+		manifestRead = true;
+	  }
+	  return manifest;
+	}
+
+	@Override
+	synchronized void close() throws IOException {
+	  if (jarFile == null) return;
+	  try {
+		jarFile.close();
+	  } finally {
+		jarFile = null;
+	  }
+	}
+  }
+
+}
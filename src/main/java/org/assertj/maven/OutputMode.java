@@ -0,0 +1,30 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+/**
+ * How generated assertions are handed over to the test compilation.
+ */
+public enum OutputMode {
+
+  /**
+   * One source file per assertion class in the target directory, added as a test source root.
+   */
+  DIRECTORY,
+  /**
+   * All the sources in a single archive next to the target directory, compiled by the plugin in the test classes
+   * directory.
+   */
+  ARCHIVE
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The class loader of a project classpath, cached in the JVM so that builds running in a long lived JVM (Maven daemon,
+ * IDE embedded Maven) reuse the class loader, and the classes it has already loaded, while the classpath is unchanged.
+ * <p>
+ * Class loaders are keyed by a fingerprint of the classpath entries paths, sizes and last modification times (the
+ * files of directories included) and of their parent class loader. The least recently used class loaders are evicted
+ * and closed once there are more than {@value #MAX_CACHED_CLASS_LOADERS} of them, they are also collected under memory
+ * pressure. An evicted class loader is only closed once the executions using it have released it, the cached ones
+ * only keep their jars open while an execution uses them.
+ */
+class ProjectClassLoader {
+
+  private static final int MAX_CACHED_CLASS_LOADERS = 16;
+  private static final Cache<String, ProjectClassLoader> CACHE = CacheBuilder.newBuilder()
+	                                                                         .maximumSize(MAX_CACHED_CLASS_LOADERS)
+	                                                                         .softValues()
+	                                                                         .removalListener(new CloseWhenReleased())
+	                                                                         .build();
+
+  private final IndexedClassLoader classLoader;
+  // guarded by CACHE
+  private int leases;
+  private boolean removedFromCache;
+
+  private ProjectClassLoader(IndexedClassLoader classLoader) {
+	this.classLoader = classLoader;
+  }
+
+  /**
+   * Returns the class loader of the given classpath, a cached one if reuse is true and it is cached, a new one
+   * otherwise. It must be {@link #release() released} once used.
+   */
+  static ProjectClassLoader acquire(List<String> classpathElements, ClassLoader parent, boolean reuse)
+	  throws IOException {
+	if (!reuse) {
+	  ProjectClassLoader projectClassLoader = new ProjectClassLoader(newClassLoader(classpathElements, parent));
+	  projectClassLoader.leases = 1;
+	  projectClassLoader.removedFromCache = true;
+	  return projectClassLoader;
+	}
+	String key = keyOf(classpathElements, parent);
+	synchronized (CACHE) {
+	  ProjectClassLoader projectClassLoader = CACHE.getIfPresent(key);
+	  if (projectClassLoader != null) {
+		projectClassLoader.leases++;
+		return projectClassLoader;
+	  }
+	  projectClassLoader = new ProjectClassLoader(newClassLoader(classpathElements, parent));
+	  projectClassLoader.leases++;
+	  CACHE.put(key, projectClassLoader);
+	  return projectClassLoader;
+	}
+  }
+
+  ClassLoader getClassLoader() {
+	return classLoader;
+  }
+
+  /**
+   * Releases this class loader, it is closed if it is not cached anymore and not used by another execution. A cached
+   * class loader that no execution uses closes its jars, they are opened again by the next execution using it.
+   */
+  void release() throws IOException {
+	synchronized (CACHE) {
+	  leases--;
+	  if (leases != 0) return;
+	  if (removedFromCache) classLoader.close();
+	  else classLoader.closeJars();
+	}
+  }
+
+  private static IndexedClassLoader newClassLoader(List<String> classpathElements, ClassLoader parent)
+	  throws IOException {
+	return IndexedClassLoader.of(classpathElements, parent);
+  }
+
+  private static String keyOf(List<String> classpathElements, ClassLoader parent) {
+	return fingerprintOf(classpathElements) + "@" + System.identityHashCode(parent);
+  }
+
+  /**
+   * Returns a fingerprint of the paths, sizes and last modification times of the given classpath elements, the files
+   * of directories included.
+   */
+  static String fingerprintOf(List<String> classpathElements) {
+	Hasher hasher = Hashing.sha1().newHasher();
+	for (String classpathElement : classpathElements) {
+	  putFingerprintOf(new File(classpathElement).getAbsoluteFile(), hasher);
+	}
+	return hasher.hash().toString();
+  }
+
+  private static void putFingerprintOf(File file, Hasher hasher) {
+	hasher.putString(file.getPath(), UTF_8);
+	if (file.isDirectory()) {
+	  File[] files = file.listFiles();
+	  if (files == null) return;
+	  Arrays.sort(files);
+	  for (File child : files) {
+		putFingerprintOf(child, hasher);
+	  }
+	} else {
+	  // a missing file has a zero length and last modification time
+	  hasher.putLong(file.length()).putLong(file.lastModified());
+	}
+  }
+
+  private static class CloseWhenReleased implements RemovalListener<String, ProjectClassLoader> {
+	@Override
+	public void onRemoval(RemovalNotification<String, ProjectClassLoader> notification) {
+	  ProjectClassLoader projectClassLoader = notification.getValue();
+	  // collected class loaders can't be closed, their jars are closed when collected
+	  if (projectClassLoader == null) return;
+	  synchronized (CACHE) {
+		projectClassLoader.removedFromCache = true;
+		if (projectClassLoader.leases != 0) return;
+		try {
+		  projectClassLoader.classLoader.close();
+		} catch (IOException e) {
+		  // nothing more can be done, the jars will be closed when the class loader is collected
+		}
+	  }
+	}
+  }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+/**
+ * The classpath roots searched for the classes of the <code>packages</code> parameter. Whatever the scope, the whole
+ * project classpath is used to load the found classes and the types they refer to.
+ */
+public enum ScanScope {
+
+  /**
+   * The project classes and test classes output directories.
+   */
+  OUTPUT_DIRS_ONLY,
+  /**
+   * The project output directories and the classes of the other projects of the reactor.
+   */
+  PROJECT_AND_REACTOR,
+  /**
+   * The whole compile and test classpath, dependencies included.
+   */
+  FULL_CLASSPATH
+
+}
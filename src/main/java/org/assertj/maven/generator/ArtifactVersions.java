@@ -0,0 +1,126 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.assertj.assertions.generator.BaseAssertionGenerator;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Versions of the plugin and of the assertions generator, read from the maven metadata packaged in their jars.
+ * <p>
+ * Versions do not tell apart two builds of a snapshot (or of an artifact without maven metadata), what is rendered
+ * with a plugin or generator is thus keyed by their fingerprint: their version with a hash of the content of their jar
+ * (or classes directory).
+ */
+final class ArtifactVersions {
+
+  private static final String UNKNOWN_VERSION = "unknown";
+  static final String PLUGIN_VERSION = versionOf(AssertionsGenerator.class, "assertj-assertions-generator-maven-plugin");
+  static final String GENERATOR_VERSION = versionOf(BaseAssertionGenerator.class, "assertj-assertions-generator");
+  static final String PLUGIN_FINGERPRINT = PLUGIN_VERSION + "@" + contentHashOf(AssertionsGenerator.class);
+  static final String GENERATOR_FINGERPRINT = GENERATOR_VERSION + "@" + contentHashOf(BaseAssertionGenerator.class);
+
+  private ArtifactVersions() {}
+
+  private static String versionOf(Class<?> artifactClass, String artifactId) {
+	InputStream pomProperties = artifactClass.getResourceAsStream("/META-INF/maven/org.assertj/" + artifactId
+	                                                              + "/pom.properties");
+	if (pomProperties == null) return UNKNOWN_VERSION;
+	try {
+	  try {
+		Properties properties = new Properties();
+		properties.load(pomProperties);
+		return properties.getProperty("version", UNKNOWN_VERSION);
+	  } finally {
+		pomProperties.close();
+	  }
+	} catch (IOException e) {
+	  return UNKNOWN_VERSION;
+	}
+  }
+
+  /**
+   * Returns a hash of the jar or classes directory the given class comes from, of the class file alone if it can't be
+   * located.
+   */
+  private static String contentHashOf(Class<?> artifactClass) {
+	Hasher hasher = Hashing.sha1().newHasher();
+	try {
+	  File classpathRoot = classpathRoot(artifactClass);
+	  if (classpathRoot != null && classpathRoot.isFile()) {
+		hasher.putBytes(Files.toByteArray(classpathRoot));
+	  } else if (classpathRoot != null && classpathRoot.isDirectory()) {
+		putContentOf(classpathRoot, "", hasher);
+	  } else {
+		putClassFileOf(artifactClass, hasher);
+	  }
+	} catch (IOException e) {
+	  // only the version identifies the artifact
+	  return UNKNOWN_VERSION;
+	}
+	return hasher.hash().toString();
+  }
+
+  private static File classpathRoot(Class<?> artifactClass) {
+	CodeSource codeSource = artifactClass.getProtectionDomain().getCodeSource();
+	URL location = codeSource == null ? null : codeSource.getLocation();
+	if (location == null || !"file".equals(location.getProtocol())) return null;
+	try {
+	  return new File(location.toURI());
+	} catch (URISyntaxException e) {
+	  return null;
+	} catch (IllegalArgumentException e) {
+	  return null;
+	}
+  }
+
+  private static void putContentOf(File directory, String path, Hasher hasher) throws IOException {
+	File[] files = directory.listFiles();
+	if (files == null) return;
+	Arrays.sort(files);
+	for (File file : files) {
+	  String filePath = path + "/" + file.getName();
+	  if (file.isDirectory()) {
+		putContentOf(file, filePath, hasher);
+	  } else {
+		hasher.putString(filePath, UTF_8).putBytes(Files.toByteArray(file));
+	  }
+	}
+  }
+
+  private static void putClassFileOf(Class<?> artifactClass, Hasher hasher) throws IOException {
+	InputStream classFile = artifactClass.getResourceAsStream(artifactClass.getSimpleName() + ".class");
+	if (classFile == null) throw new IOException("No class file for " + artifactClass);
+	try {
+	  hasher.putBytes(ByteStreams.toByteArray(classFile));
+	} finally {
+	  classFile.close();
+	}
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.assertj.assertions.generator.BaseAssertionGenerator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Assertions templates loaded once and shared by the generators of the JVM, so that builds running several executions
+ * or modules (or running in a long lived JVM like the Maven daemon) don't read and parse the templates again for each
+ * of them.
+ * <p>
+ * Templates are held by an assertion generator that is only used to render sources, it is never given a directory to
+ * write files to and its templates are never changed, it can thus be used by several threads. The templates of a
+ * directory are keyed by a hash of the directory files names and content only, so that directories with the same
+ * templates (like the copies of the modules of a build, or a moved checkout) share them and edited templates are
+ * loaded again. The least recently used templates are evicted once there are more than
+ * {@value #MAX_CACHED_TEMPLATES} of them, they are also collected under memory pressure.
+ * <p>
+ * This class is thread safe.
+ */
+final class AssertionTemplates {
+
+  static final String DEFAULT_TEMPLATES_FINGERPRINT = "default";
+  private static final int MAX_CACHED_TEMPLATES = 16;
+  private static final Cache<String, AssertionTemplates> CACHE = CacheBuilder.newBuilder()
+	                                                                         .maximumSize(MAX_CACHED_TEMPLATES)
+	                                                                         .softValues()
+	                                                                         .build();
+
+  private final BaseAssertionGenerator generator;
+  private final String fingerprint;
+
+  private AssertionTemplates(BaseAssertionGenerator generator, String fingerprint) {
+	this.generator = generator;
+	this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Returns the templates packaged with the assertions generator.
+   */
+  static AssertionTemplates defaults() throws IOException {
+	synchronized (CACHE) {
+	  AssertionTemplates templates = CACHE.getIfPresent(DEFAULT_TEMPLATES_FINGERPRINT);
+	  if (templates != null) return templates;
+	  templates = new AssertionTemplates(new BaseAssertionGenerator(), DEFAULT_TEMPLATES_FINGERPRINT);
+	  CACHE.put(DEFAULT_TEMPLATES_FINGERPRINT, templates);
+	  return templates;
+	}
+  }
+
+  /**
+   * Returns the templates of the given directory, loaded again if the content of the directory has changed since they
+   * were cached.
+   */
+  static AssertionTemplates of(File templatesDirectory) throws IOException {
+	File directory = templatesDirectory.getAbsoluteFile();
+	if (!directory.isDirectory()) throw new IOException("Templates directory " + directory + " does not exist");
+	String fingerprint = fingerprintOf(directory);
+	synchronized (CACHE) {
+	  AssertionTemplates templates = CACHE.getIfPresent(fingerprint);
+	  if (templates != null) return templates;
+	  // the assertions generator appends the templates file names to the directory path
+	  BaseAssertionGenerator generator = new BaseAssertionGenerator(directory.getPath() + File.separator);
+	  templates = new AssertionTemplates(generator, fingerprint);
+	  CACHE.put(fingerprint, templates);
+	  return templates;
+	}
+  }
+
+  private static String fingerprintOf(File directory) throws IOException {
+	Hasher hasher = Hashing.sha1().newHasher();
+	File[] files = directory.listFiles();
+	if (files == null) throw new IOException("Could not list the templates of " + directory);
+	Arrays.sort(files);
+	for (File file : files) {
+	  if (!file.isFile()) continue;
+	  hasher.putString(file.getName(), UTF_8).putBytes(Files.toByteArray(file));
+	}
+	return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the assertion generator holding the templates, only to be used to render sources.
+   */
+  BaseAssertionGenerator getGenerator() {
+	return generator;
+  }
+
+  /**
+   * Returns the content hash of the templates, to invalidate what was rendered with other templates.
+   */
+  String getFingerprint() {
+	return fingerprint;
+  }
+
+}
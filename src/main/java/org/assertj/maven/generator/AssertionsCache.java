@@ -0,0 +1,244 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * On disk cache of rendered assertions sources, shared by the modules of a build and by successive builds.
+ * <p>
+ * Entries are keyed by a hash of everything the rendered sources depend on (see {@link #keyOf(String...)}), typically
+ * the bytecode fingerprint of a class and the plugin and generator versions. Class descriptions can't be serialized,
+ * caching what they are rendered to skips both the reflection based conversion and the rendering.
+ * <p>
+ * The cache size is bounded: once over its maximum size, least recently used entries are removed. Entries are written
+ * to a temporary file renamed once complete and a missing or truncated entry is a cache miss, so that several builds
+ * can safely use the same cache directory concurrently.
+ */
+class AssertionsCache {
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String LOCK_FILE_NAME = ".lock";
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+  // evict down to this ratio of the maximum size to avoid evicting on each run
+  private static final double EVICTION_TARGET_RATIO = 0.8;
+
+  private final File directory;
+  private final long maxSizeInBytes;
+
+  AssertionsCache(File directory, long maxSizeInBytes) {
+	this.directory = directory;
+	this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  /**
+   * Computes a cache key from the given parts.
+   */
+  static String keyOf(String... parts) {
+	Hasher hasher = Hashing.sha1().newHasher().putInt(FORMAT_VERSION);
+	for (String part : parts) {
+	  hasher.putInt(part == null ? -1 : part.length());
+	  if (part != null) hasher.putString(part, UTF_8);
+	}
+	return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the sources cached with the given key, null if there are none.
+   */
+  List<CachedSource> get(String key) {
+	File entry = entryFile(key);
+	if (!entry.isFile()) return null;
+	try {
+	  List<CachedSource> sources = read(entry);
+	  // records the access for the least recently used eviction
+	  entry.setLastModified(System.currentTimeMillis());
+	  return sources;
+	} catch (IOException e) {
+	  // entry evicted or being replaced by another build
+	  return null;
+	}
+  }
+
+  void put(String key, List<CachedSource> sources) throws IOException {
+	File entry = entryFile(key);
+	entry.getParentFile().mkdirs();
+	File temporaryFile = File.createTempFile(key, TEMPORARY_FILE_SUFFIX, entry.getParentFile());
+	try {
+	  write(sources, temporaryFile);
+	  if (!temporaryFile.renameTo(entry)) {
+		// another build has stored the same entry in the meantime (or the platform does not replace files)
+		entry.delete();
+		temporaryFile.renameTo(entry);
+	  }
+	} finally {
+	  temporaryFile.delete();
+	}
+  }
+
+  /**
+   * Removes the least recently used entries if the cache is bigger than its maximum size. Does nothing if another
+   * build is already evicting entries.
+   */
+  void evictLeastRecentlyUsedEntries() throws IOException {
+	directory.mkdirs();
+	RandomAccessFile lockFile = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
+	try {
+	  FileLock lock = lockFile.getChannel().tryLock();
+	  if (lock == null) return;
+	  try {
+		evictLeastRecentlyUsedEntriesWhileLocked();
+	  } finally {
+		lock.release();
+	  }
+	} finally {
+	  lockFile.close();
+	}
+  }
+
+  private void evictLeastRecentlyUsedEntriesWhileLocked() {
+	List<CacheEntry> entries = new ArrayList<CacheEntry>();
+	long cacheSize = 0;
+	File[] entryDirectories = directory.listFiles();
+	if (entryDirectories == null) return;
+	for (File entryDirectory : entryDirectories) {
+	  File[] entryFiles = entryDirectory.listFiles();
+	  if (entryFiles == null) continue;
+	  for (File entryFile : entryFiles) {
+		CacheEntry entry = new CacheEntry(entryFile);
+		entries.add(entry);
+		cacheSize += entry.size;
+	  }
+	}
+	if (cacheSize <= maxSizeInBytes) return;
+	Collections.sort(entries);
+	long targetSize = (long) (maxSizeInBytes * EVICTION_TARGET_RATIO);
+	for (Iterator<CacheEntry> it = entries.iterator(); it.hasNext() && cacheSize > targetSize;) {
+	  CacheEntry entry = it.next();
+	  if (entry.file.delete()) cacheSize -= entry.size;
+	}
+  }
+
+  private File entryFile(String key) {
+	// spreads entries in subdirectories to keep directories small
+	return new File(new File(directory, key.substring(0, 2)), key);
+  }
+
+  private static List<CachedSource> read(File entry) throws IOException {
+	DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+	try {
+	  int sourcesCount = input.readInt();
+	  List<CachedSource> sources = new ArrayList<CachedSource>(sourcesCount);
+	  for (int i = 0; i < sourcesCount; i++) {
+		sources.add(new CachedSource(readString(input), readString(input), readString(input)));
+	  }
+	  return sources;
+	} finally {
+	  input.close();
+	}
+  }
+
+  private static void write(List<CachedSource> sources, File file) throws IOException {
+	DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+	try {
+	  output.writeInt(sources.size());
+	  for (CachedSource source : sources) {
+		writeString(source.getPackageName(), output);
+		writeString(source.getFileName(), output);
+		writeString(source.getContent(), output);
+	  }
+	} finally {
+	  output.close();
+	}
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+	byte[] bytes = new byte[input.readInt()];
+	input.readFully(bytes);
+	return new String(bytes, UTF_8);
+  }
+
+  private static void writeString(String string, DataOutputStream output) throws IOException {
+	// DataOutput.writeUTF is limited to 64KB strings
+	byte[] bytes = string.getBytes(UTF_8);
+	output.writeInt(bytes.length);
+	output.write(bytes);
+  }
+
+  /**
+   * An entry file with its size and last access time taken once, as other builds may access it while entries are
+   * sorted.
+   */
+  private static class CacheEntry implements Comparable<CacheEntry> {
+	private final File file;
+	private final long size;
+	private final long lastAccess;
+
+	CacheEntry(File file) {
+	  this.file = file;
+	  this.size = file.length();
+	  this.lastAccess = file.lastModified();
+	}
+
+	@Override
+	public int compareTo(CacheEntry other) {
+	  return lastAccess < other.lastAccess ? -1 : (lastAccess == other.lastAccess ? 0 : 1);
+	}
+  }
+
+  /**
+   * A rendered source file: its package, its file name and its content.
+   */
+  static class CachedSource {
+	private final String packageName;
+	private final String fileName;
+	private final String content;
+
+	CachedSource(String packageName, String fileName, String content) {
+	  this.packageName = packageName;
+	  this.fileName = fileName;
+	  this.content = content;
+	}
+
+	String getPackageName() {
+	  return packageName;
+	}
+
+	String getFileName() {
+	  return fileName;
+	}
+
+	String getContent() {
+	  return content;
+	}
+  }
+
+}
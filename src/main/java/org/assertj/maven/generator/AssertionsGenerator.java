@@ -12,20 +12,56 @@
  */
 package org.assertj.maven.generator;
 
+import static com.google.common.base.Strings.emptyToNull;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Maps.newTreeMap;
 import static com.google.common.collect.Sets.newLinkedHashSet;
+import static com.google.common.collect.Sets.newTreeSet;
+import static java.lang.reflect.Modifier.isPublic;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.collections.CollectionUtils.subtract;
 import static org.apache.commons.lang3.ArrayUtils.addAll;
+import static org.apache.commons.lang3.ArrayUtils.nullToEmpty;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.split;
 import static org.assertj.assertions.generator.util.ClassUtil.collectClasses;
 import static org.assertj.core.util.Arrays.isNullOrEmpty;
 import static org.assertj.core.util.Sets.newHashSet;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CACHE;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CLASS_COLLECTION;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CONVERSION;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.ENTRY_POINTS;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.FILE_WRITING;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.FILTERING;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.RENDERING;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.UP_TO_DATE_CHECK;
+import static org.assertj.maven.generator.SourceFileWriter.declaredPackageOf;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
 
 import org.apache.maven.plugin.logging.Log;
 import org.assertj.assertions.generator.AssertionsEntryPointType;
@@ -33,54 +69,85 @@ import org.assertj.assertions.generator.BaseAssertionGenerator;
 import org.assertj.assertions.generator.description.ClassDescription;
 import org.assertj.assertions.generator.description.converter.ClassToClassDescriptionConverter;
 import org.assertj.core.util.VisibleForTesting;
+import org.assertj.maven.generator.AssertionsCache.CachedSource;
+import org.assertj.maven.generator.GenerationMetrics.Checkpoint;
 
 /**
  * Is able to generate AssertJ assertions classes from packages.
  */
 public class AssertionsGenerator {
 
-  private static final Pattern INCLUDE_EVERYTHING = Pattern.compile(".*");
+  private static final ClassNameMatcher INCLUDE_EVERYTHING = new ClassNameMatcher(".*");
   private ClassToClassDescriptionConverter converter;
   private ClassLoader classLoader;
   private BaseAssertionGenerator generator;
-  private Pattern[] includePatterns;
-  private Pattern[] excludePatterns;
+  private boolean sharedGenerator;
+  private String templatesFingerprint = AssertionTemplates.DEFAULT_TEMPLATES_FINGERPRINT;
+  private ClassNameMatcher includeMatcher;
+  private ClassNameMatcher excludeMatcher;
   private Log log;
   private Set<AssertionsEntryPointType> assertionsEntryPointToGenerate;
+  private boolean incremental;
+  private boolean scanBytecode;
+  private boolean writeChangedFilesOnly;
+  private final ClassFingerprinter fingerprinter = new ClassFingerprinter();
+  private TaskRunner taskRunner = new TaskRunner(1);
+  private AssertionsCache cache;
+  private ClasspathIndex classpathIndex;
+  private Set<File> scanRoots;
+  private File outputArchive;
+  private Charset outputArchiveCharset;
+  private SourceFileDestination sourceFileDestination;
+  private EntryPointSharding entryPointSharding = EntryPointSharding.NONE;
+  private int entryPointShardPackageDepth;
+  private TestSourceUsages testSourceUsages;
+  private GenerationMetrics metrics = new GenerationMetrics();
+  private File reportFile;
+  private ReportFormat reportFormat;
+  private int reportConsoleEntriesLimit;
 
+  /**
+   * Creates a generator rendering assertions with the default templates, loaded once for the whole JVM (see
+   * {@link #setTemplatesDirectory(File)}). As the templates are shared, generated files are rendered in memory and
+   * written by this generator (see {@link #setWriteChangedFilesOnly(boolean)}).
+   */
   public AssertionsGenerator(ClassLoader classLoader) throws FileNotFoundException, IOException {
-	this.generator = new BaseAssertionGenerator();
+	this(classLoader, AssertionTemplates.defaults().getGenerator());
+  }
+
+  /**
+   * Creates a generator rendering assertions with the given assertion generator, so that its templates are loaded once
+   * for several generators. Generated files are then rendered in memory and written by this generator since the
+   * directory of the given assertion generator is shared.
+   */
+  public AssertionsGenerator(ClassLoader classLoader, BaseAssertionGenerator generator) {
+	this.generator = generator;
+	this.sharedGenerator = true;
 	this.converter = new ClassToClassDescriptionConverter();
 	this.classLoader = classLoader;
-	this.includePatterns = new Pattern[] { INCLUDE_EVERYTHING };
-	this.excludePatterns = new Pattern[0];
+	this.includeMatcher = INCLUDE_EVERYTHING;
+	this.excludeMatcher = new ClassNameMatcher();
 	this.assertionsEntryPointToGenerate = newHashSet();
   }
 
   public void setIncludePatterns(String[] includeRegexs) {
-	if (isNullOrEmpty(includeRegexs)) {
-	  includePatterns = new Pattern[] { INCLUDE_EVERYTHING };
-	  return;
-	}
-	includePatterns = new Pattern[includeRegexs.length];
-	for (int i = 0; i < includeRegexs.length; i++) {
-	  includePatterns[i] = Pattern.compile(includeRegexs[i]);
-	}
+	includeMatcher = isNullOrEmpty(includeRegexs) ? INCLUDE_EVERYTHING : new ClassNameMatcher(includeRegexs);
   }
 
   public void setExcludePatterns(String[] excludeRegexs) {
 	if (isNullOrEmpty(excludeRegexs)) {
 	  return;
 	}
-	excludePatterns = new Pattern[excludeRegexs.length];
-	for (int i = 0; i < excludeRegexs.length; i++) {
-	  excludePatterns[i] = Pattern.compile(excludeRegexs[i]);
-	}
+	excludeMatcher = new ClassNameMatcher(excludeRegexs);
   }
 
   /**
    * Generates custom assertions for classes in given packages with the Assertions class entry point in given
    * destination dir.
+   * <p>
+   * When incremental generation is enabled, only classes whose bytecode (or the bytecode of their supertypes) has
+   * changed since the previous run are regenerated, assertions files of classes that are not part of the input anymore
+   * are removed.
    * 
    * @param inputPackages the packages containing the classes we want to generate Assert classes for.
    * @param inputClassNames the packages containing the classes we want to generate Assert classes for.
@@ -88,92 +155,691 @@ public class AssertionsGenerator {
    * @param entryPointFilePackage the package of the assertions entry point class, may be <code>null</code>.
    * @throws IOException if the files can't be generated
    */
-  @SuppressWarnings("unchecked")
   public AssertionsGeneratorReport generateAssertionsFor(String[] inputPackages, String[] inputClassNames, String destDir,
 	                                                     String entryPointFilePackage, boolean hierarchical) {
-	generator.setDirectoryWhereAssertionFilesAreGenerated(destDir);
-	Set<ClassDescription> classDescriptions = new HashSet<ClassDescription>();
+	if (!sharedGenerator) generator.setDirectoryWhereAssertionFilesAreGenerated(destDir);
+	Map<Class<?>, ClassDescription> classDescriptions = new HashMap<Class<?>, ClassDescription>();
 	AssertionsGeneratorReport report = new AssertionsGeneratorReport();
 	report.setInputPackages(inputPackages);
 	report.setInputClasses(inputClassNames);
+	report.setGenerationMetrics(metrics);
+	SourceFileWriter writer = null;
 	try {
-	  Set<Class<?>> classes = collectClasses(classLoader, addAll(inputPackages, inputClassNames));
-	  report.reportInputClassesNotFound(classes, inputClassNames);
-	  Set<Class<?>> filteredClasses = removeAssertClasses(classes);
-	  removeClassesAccordingToIncludeAndExcludePatterns(filteredClasses);
-	  report.setExcludedClassesFromAssertionGeneration(subtract(classes, filteredClasses));
+	  if (reportFile != null) report.streamEntriesTo(reportFile, reportFormat, reportConsoleEntriesLimit);
+	  Set<String> excludedClassNames = newTreeSet();
+	  Set<Class<?>> filteredClasses = collectClassesFrom(inputPackages, inputClassNames, excludedClassNames);
+	  Set<String> classNamesFound = classNamesOf(filteredClasses);
+	  classNamesFound.addAll(excludedClassNames);
+	  report.reportInputClassesNotFound(classNamesFound, inputClassNames);
+	  report.setExcludedClassesFromAssertionGeneration(excludedClassNames);
+	  if (testSourceUsages != null) {
+		Checkpoint checkpoint = metrics.start();
+		filteredClasses = removeClassesUnusedByTests(filteredClasses, inputClassNames, hierarchical, report);
+		metrics.record(FILTERING, checkpoint);
+	  }
 	  report.setDirectoryPathWhereAssertionFilesAreGenerated(destDir);
-	  if (hierarchical) {
-		for (Class<?> clazz : filteredClasses) {
-		  ClassDescription classDescription = converter.convertToClassDescription(clazz);
-		  File[] generatedCustomAssertionFiles = generator.generateHierarchicalCustomAssertionFor(classDescription,
-			                                                                                      filteredClasses);
-		  report.addGeneratedAssertionFile(generatedCustomAssertionFiles[0]);
-		  report.addGeneratedAssertionFile(generatedCustomAssertionFiles[1]);
-		  classDescriptions.add(classDescription);
-		}
-	  } else {
-		for (Class<?> clazz : filteredClasses) {
-		  ClassDescription classDescription = converter.convertToClassDescription(clazz);
-		  File generatedCustomAssertionFile = generator.generateCustomAssertionFor(classDescription);
+	  GenerationManifest previousManifest = null;
+	  GenerationManifest manifest = null;
+	  Set<Class<?>> classesToGenerate = filteredClasses;
+	  TypeHierarchyIndex hierarchy = hierarchical ? new TypeHierarchyIndex(filteredClasses) : null;
+	  // previously generated files can only be kept when they are written in the destination directory
+	  if (incremental && outputArchive == null && sourceFileDestination == null) {
+		Checkpoint checkpoint = metrics.start();
+		previousManifest = GenerationManifest.readFrom(destDir);
+		manifest = GenerationManifest.newManifest(destDir, configurationOf(hierarchical, entryPointFilePackage));
+		classesToGenerate = classesNotUpToDate(filteredClasses, hierarchy, previousManifest, manifest, report);
+		metrics.record(UP_TO_DATE_CHECK, checkpoint);
+	  }
+	  if (sourceFileDestination != null) writer = new SourceFileWriter(destDir, sourceFileDestination, metrics);
+	  else if (outputArchive != null) {
+		writer = SourceFileWriter.toArchive(destDir, outputArchive, outputArchiveCharset, metrics);
+	  }
+	  else if (writeChangedFilesOnly || sharedGenerator) {
+		writer = new SourceFileWriter(destDir, writeChangedFilesOnly, metrics);
+	  }
+	  for (GeneratedAssertions generatedAssertions : generateCustomAssertionsFor(classesToGenerate, hierarchy, destDir,
+		                                                                         writer)) {
+		for (File generatedCustomAssertionFile : generatedAssertions.files) {
 		  report.addGeneratedAssertionFile(generatedCustomAssertionFile);
-		  classDescriptions.add(classDescription);
+		}
+		Class<?> clazz = generatedAssertions.clazz;
+		if (manifest != null) manifest.recordGeneratedFiles(clazz.getName(), generatedAssertions.files);
+		// assertions taken from the cache have no description, it is only built if an entry point needs it
+		if (generatedAssertions.classDescription == null) {
+		  report.addCachedAssertionFiles(generatedAssertions.files.length);
+		} else {
+		  classDescriptions.put(clazz, generatedAssertions.classDescription);
 		}
 	  }
 
-	  for (AssertionsEntryPointType assertionsEntryPointType : assertionsEntryPointToGenerate) {
-		File assertionsEntryPointFile = generator.generateAssertionsEntryPointClassFor(classDescriptions,
-		                                                                               assertionsEntryPointType,
-		                                                                               entryPointFilePackage);
-		report.reportEntryPointGeneration(assertionsEntryPointType, assertionsEntryPointFile);
+	  Checkpoint checkpoint = metrics.start();
+	  if (manifest == null) {
+		generateAllEntryPoints(filteredClasses, classDescriptions, entryPointFilePackage, writer, null, null, report);
+		metrics.record(ENTRY_POINTS, checkpoint);
+	  } else {
+		removeAssertionsOfClassesNoLongerGenerated(previousManifest, manifest, report);
+		checkpoint = metrics.record(FILE_WRITING, checkpoint);
+		generateAllEntryPoints(filteredClasses, classDescriptions, entryPointFilePackage, writer, previousManifest,
+		                       manifest, report);
+		checkpoint = metrics.record(ENTRY_POINTS, checkpoint);
+		removeEntryPointsNoLongerGenerated(previousManifest, manifest, report);
+		if (!filteredClasses.isEmpty() || !previousManifest.classNames().isEmpty()) manifest.writeTo(destDir);
+		metrics.record(FILE_WRITING, checkpoint);
+	  }
+	  if (writer != null) {
+		// waits for the rendered files to be written
+		writer.close();
+		report.reportFileWrites(writer.getWrittenFilesCount(), writer.getUnchangedFilesCount());
 	  }
+	  if (isCacheEnabled(writer)) evictLeastRecentlyUsedCacheEntries();
 	} catch (Exception e) {
 	  report.setException(e);
+	  // a partially generated archive must not replace the previous one
+	  if (writer != null) writer.abort();
+	}
+	try {
+	  report.closeEntriesStream();
+	} catch (IOException e) {
+	  if (report.getReportedException() == null) report.setException(e);
 	}
 	return report;
   }
 
+  /**
+   * Converts and renders the assertions of the given classes, possibly in parallel, the results are returned in the
+   * classes order so that the outcome does not depend on the number of threads.
+   * <p>
+   * The hierarchy of the generated classes is null when the assertions are not hierarchical.
+   */
+  private List<GeneratedAssertions> generateCustomAssertionsFor(Set<Class<?>> classesToGenerate,
+	                                                            final TypeHierarchyIndex hierarchy, String destDir,
+	                                                            final SourceFileWriter writer) throws Exception {
+	if (writer == null && taskRunner.getThreads() > 1) createPackageDirectories(classesToGenerate, destDir);
+	List<Callable<GeneratedAssertions>> tasks = new ArrayList<Callable<GeneratedAssertions>>(classesToGenerate.size());
+	for (final Class<?> clazz : classesToGenerate) {
+	  tasks.add(new Callable<GeneratedAssertions>() {
+		@Override
+		public GeneratedAssertions call() throws Exception {
+		  Checkpoint checkpoint = metrics.start();
+		  String cacheKey = isCacheEnabled(writer) ? cacheKeyOf(clazz, hierarchy) : null;
+		  List<CachedSource> sources = null;
+		  if (cacheKey != null) {
+			sources = cache.get(cacheKey);
+			checkpoint = metrics.record(CACHE, checkpoint);
+		  }
+		  ClassDescription classDescription = null;
+		  if (sources == null) {
+			classDescription = converter.convertToClassDescription(clazz);
+			checkpoint = metrics.record(CONVERSION, checkpoint);
+			if (writer == null) {
+			  // the generator renders and writes the files at once
+			  File[] generatedFiles = generateCustomAssertionFilesFor(classDescription, clazz, hierarchy);
+			  metrics.record(RENDERING, checkpoint);
+			  return new GeneratedAssertions(clazz, classDescription, generatedFiles);
+			}
+			sources = renderCustomAssertionsFor(classDescription, clazz, hierarchy);
+			checkpoint = metrics.record(RENDERING, checkpoint);
+			if (cacheKey != null) {
+			  putInCache(cacheKey, sources);
+			  metrics.record(CACHE, checkpoint);
+			}
+		  }
+		  // files are written by the writer thread which measures it
+		  return new GeneratedAssertions(clazz, classDescription, write(sources, writer));
+		}
+	  });
+	}
+	return taskRunner.runAll(tasks);
+  }
+
+  private File[] generateCustomAssertionFilesFor(ClassDescription classDescription, Class<?> clazz,
+	                                             TypeHierarchyIndex hierarchy) throws IOException {
+	return hierarchy != null
+	    ? generator.generateHierarchicalCustomAssertionFor(classDescription, hierarchy.generatedSuperclassesOf(clazz))
+	    : new File[] { generator.generateCustomAssertionFor(classDescription) };
+  }
+
+  /**
+   * Renders the assertions of the given class in memory.
+   */
+  private List<CachedSource> renderCustomAssertionsFor(ClassDescription classDescription, Class<?> clazz,
+	                                                   TypeHierarchyIndex hierarchy) throws IOException {
+	String packageName = classDescription.getPackageName();
+	if (hierarchy == null) {
+	  String assertionFileContent = generator.generateCustomAssertionContentFor(classDescription);
+	  return singletonList(new CachedSource(packageName, classDescription.getAssertClassFilename(),
+		                                    assertionFileContent));
+	}
+	// the generator only looks up the superclasses of the class in the generated classes
+	String[] assertionFilesContent = generator.generateHierarchicalCustomAssertionContentFor(
+	    classDescription, hierarchy.generatedSuperclassesOf(clazz));
+	return asList(new CachedSource(packageName, classDescription.getAbstractAssertClassFilename(),
+	                               assertionFilesContent[0]),
+	              new CachedSource(packageName, classDescription.getAssertClassFilename(), assertionFilesContent[1]));
+  }
+
+  private static File[] write(List<CachedSource> sources, SourceFileWriter writer) throws IOException {
+	File[] files = new File[sources.size()];
+	for (int i = 0; i < files.length; i++) {
+	  CachedSource source = sources.get(i);
+	  files[i] = writer.write(source.getPackageName(), source.getFileName(), source.getContent());
+	}
+	return files;
+  }
+
+  private boolean isCacheEnabled(SourceFileWriter writer) {
+	// the cache holds rendered sources, it can't be used when the generator writes the files itself
+	return cache != null && writer != null;
+  }
+
+  private String cacheKeyOf(Class<?> clazz, TypeHierarchyIndex hierarchy) throws IOException {
+	return AssertionsCache.keyOf("assertions", ArtifactVersions.PLUGIN_FINGERPRINT,
+	                             ArtifactVersions.GENERATOR_FINGERPRINT, templatesFingerprint,
+	                             String.valueOf(hierarchy != null), clazz.getName(), fingerprintOf(clazz, hierarchy));
+  }
+
+  private String entryPointCacheKeyOf(List<String> classFingerprints, AssertionsEntryPointType type,
+	                                  String entryPointFilePackage) {
+	List<String> keyParts = newArrayList("entryPoint", ArtifactVersions.PLUGIN_FINGERPRINT,
+	                                     ArtifactVersions.GENERATOR_FINGERPRINT, templatesFingerprint, type.name(),
+	                                     entryPointFilePackage);
+	keyParts.addAll(classFingerprints);
+	return AssertionsCache.keyOf(keyParts.toArray(new String[keyParts.size()]));
+  }
+
+  /**
+   * Returns the names and fingerprints of the given classes, sorted by name so that they do not depend on the classes
+   * order.
+   */
+  private List<String> classFingerprintsOf(Set<Class<?>> classes) throws IOException {
+	Map<String, String> fingerprintsByClassName = newTreeMap();
+	for (Class<?> clazz : classes) {
+	  fingerprintsByClassName.put(clazz.getName(), fingerprinter.fingerprintOf(clazz));
+	}
+	List<String> classFingerprints = new ArrayList<String>(2 * fingerprintsByClassName.size());
+	for (Entry<String, String> classFingerprint : fingerprintsByClassName.entrySet()) {
+	  classFingerprints.add(classFingerprint.getKey());
+	  classFingerprints.add(classFingerprint.getValue());
+	}
+	return classFingerprints;
+  }
+
+  /**
+   * Cache failures are not worth failing the build, the assertions just get rendered again next time.
+   */
+  private void putInCache(String cacheKey, List<CachedSource> sources) {
+	try {
+	  cache.put(cacheKey, sources);
+	} catch (IOException e) {
+	  if (log != null) log.debug("Could not store generated assertions in the cache : " + e);
+	}
+  }
+
+  private void evictLeastRecentlyUsedCacheEntries() {
+	try {
+	  cache.evictLeastRecentlyUsedEntries();
+	} catch (IOException e) {
+	  if (log != null) log.debug("Could not evict least recently used entries of the assertions cache : " + e);
+	}
+  }
+
+  /**
+   * Creates the package directories upfront as concurrent creation of the same directory tree is not reliable.
+   */
+  private static void createPackageDirectories(Set<Class<?>> classes, String destDir) {
+	Set<String> packageNames = newTreeSet();
+	for (Class<?> clazz : classes) {
+	  if (clazz.getPackage() != null) packageNames.add(clazz.getPackage().getName());
+	}
+	for (String packageName : packageNames) {
+	  new File(destDir, packageName.replace('.', File.separatorChar)).mkdirs();
+	}
+  }
+
+  /**
+   * Generates the entry points of the given classes or, when entry points are sharded, the entry points of each shard
+   * in the shard package. With a manifest, only the entry points of the shards whose classes have changed are
+   * generated.
+   */
+  private void generateAllEntryPoints(Set<Class<?>> classes, Map<Class<?>, ClassDescription> classDescriptions,
+	                                  String entryPointFilePackage, SourceFileWriter writer,
+	                                  GenerationManifest previousManifest, GenerationManifest manifest,
+	                                  AssertionsGeneratorReport report) throws Exception {
+	if (entryPointSharding == EntryPointSharding.NONE) {
+	  generateEntryPointsIfOutdated(classes, classDescriptions, null, entryPointFilePackage, writer, previousManifest,
+		                            manifest, report);
+	  return;
+	}
+	for (Entry<String, Set<Class<?>>> shard : entryPointShardsOf(classes).entrySet()) {
+	  String shardPackage = shard.getKey();
+	  if (manifest != null) manifest.recordEntryPointShard(shardPackage, classNamesOf(shard.getValue()));
+	  // the generator finds the default package by itself
+	  String shardEntryPointPackage = emptyToNull(shardPackage);
+	  generateEntryPointsIfOutdated(shard.getValue(), classDescriptions, shardPackage, shardEntryPointPackage, writer,
+		                            previousManifest, manifest, report);
+	}
+  }
+
+  /**
+   * Groups the given classes by package, or by their first entryPointShardPackageDepth package names when set.
+   */
+  private Map<String, Set<Class<?>>> entryPointShardsOf(Set<Class<?>> classes) {
+	Map<String, Set<Class<?>>> shards = newTreeMap();
+	for (Class<?> clazz : classes) {
+	  String packageName = clazz.getPackage() == null ? "" : clazz.getPackage().getName();
+	  String[] packageNames = split(packageName, '.');
+	  if (entryPointShardPackageDepth > 0 && packageNames.length > entryPointShardPackageDepth) {
+		packageName = join(packageNames, '.', 0, entryPointShardPackageDepth);
+	  }
+	  Set<Class<?>> shardClasses = shards.get(packageName);
+	  if (shardClasses == null) {
+		shardClasses = newLinkedHashSet();
+		shards.put(packageName, shardClasses);
+	  }
+	  shardClasses.add(clazz);
+	}
+	return shards;
+  }
+
+  /**
+   * Generates all the entry points in one pass: the classes descriptions and fingerprints they all need are computed
+   * once, then the entry points are rendered in parallel (when they are written by the writer thread, the generator
+   * writing files itself is not safe to run concurrently).
+   */
+  private void generateEntryPoints(Set<Class<?>> classes, Map<Class<?>, ClassDescription> classDescriptions,
+	                               String shard, final String entryPointFilePackage, final SourceFileWriter writer,
+	                               GenerationManifest manifest, AssertionsGeneratorReport report) throws Exception {
+	if (assertionsEntryPointToGenerate.isEmpty()) return;
+	final Set<ClassDescription> descriptions = classDescriptionsOf(classes, classDescriptions);
+	final List<String> classFingerprints = isCacheEnabled(writer) ? classFingerprintsOf(classes) : null;
+	// in the enum order so that the report does not depend on the threads
+	List<AssertionsEntryPointType> types = new ArrayList<AssertionsEntryPointType>(
+	    EnumSet.copyOf(assertionsEntryPointToGenerate));
+	List<Callable<File>> tasks = new ArrayList<Callable<File>>(types.size());
+	for (final AssertionsEntryPointType type : types) {
+	  tasks.add(new Callable<File>() {
+		@Override
+		public File call() throws Exception {
+		  return generateEntryPoint(descriptions, classFingerprints, type, entryPointFilePackage, writer);
+		}
+	  });
+	}
+	TaskRunner entryPointsRunner = writer == null ? new TaskRunner(1) : taskRunner;
+	List<File> assertionsEntryPointFiles = entryPointsRunner.runAll(tasks);
+	for (int i = 0; i < types.size(); i++) {
+	  report.reportEntryPointGeneration(types.get(i), assertionsEntryPointFiles.get(i));
+	  if (manifest != null) manifest.recordEntryPoint(types.get(i), shard, assertionsEntryPointFiles.get(i));
+	}
+  }
+
+  private File generateEntryPoint(Set<ClassDescription> descriptions, List<String> classFingerprints,
+	                              AssertionsEntryPointType type, String entryPointFilePackage,
+	                              SourceFileWriter writer) throws IOException {
+	if (writer == null) {
+	  return generator.generateAssertionsEntryPointClassFor(descriptions, type, entryPointFilePackage);
+	}
+	// as the generator does, no entry point without classes
+	if (descriptions.isEmpty()) return null;
+	String cacheKey = classFingerprints != null ? entryPointCacheKeyOf(classFingerprints, type, entryPointFilePackage)
+	    : null;
+	List<CachedSource> entryPointSources = cacheKey == null ? null : cache.get(cacheKey);
+	if (entryPointSources == null) {
+	  String entryPointContent = generator.generateAssertionsEntryPointClassContentFor(descriptions, type,
+		                                                                               entryPointFilePackage);
+	  entryPointSources = singletonList(new CachedSource(declaredPackageOf(entryPointContent), type.getFileName(),
+		                                                 entryPointContent));
+	  if (cacheKey != null) putInCache(cacheKey, entryPointSources);
+	}
+	return write(entryPointSources, writer)[0];
+  }
+
+  /**
+   * Returns the descriptions of the given classes, converting the classes that have not been described yet (entry
+   * points reference all classes, not only the regenerated ones).
+   */
+  private Set<ClassDescription> classDescriptionsOf(Set<Class<?>> classes,
+	                                                Map<Class<?>, ClassDescription> classDescriptions) {
+	Set<ClassDescription> descriptions = new HashSet<ClassDescription>();
+	for (Class<?> clazz : classes) {
+	  ClassDescription classDescription = classDescriptions.get(clazz);
+	  if (classDescription == null) {
+		classDescription = converter.convertToClassDescription(clazz);
+		classDescriptions.put(clazz, classDescription);
+	  }
+	  descriptions.add(classDescription);
+	}
+	return descriptions;
+  }
+
+  /**
+   * Generates the entry points of the given classes, unless the previous manifest has up to date ones (the shard is
+   * null when entry points are not sharded).
+   */
+  private void generateEntryPointsIfOutdated(Set<Class<?>> classes, Map<Class<?>, ClassDescription> classDescriptions,
+	                                         String shard, String entryPointFilePackage, SourceFileWriter writer,
+	                                         GenerationManifest previousManifest, GenerationManifest manifest,
+	                                         AssertionsGeneratorReport report) throws Exception {
+	if (manifest != null && manifest.isCompatibleWith(previousManifest)
+	    && previousManifest.hasUpToDateEntryPointsFor(assertionsEntryPointToGenerate, shard, manifest)) {
+	  for (AssertionsEntryPointType assertionsEntryPointType : assertionsEntryPointToGenerate) {
+		File assertionsEntryPointFile = previousManifest.entryPointFileOf(assertionsEntryPointType, shard);
+		report.reportEntryPointGeneration(assertionsEntryPointType, assertionsEntryPointFile);
+		manifest.recordEntryPoint(assertionsEntryPointType, shard, assertionsEntryPointFile);
+	  }
+	  return;
+	}
+	generateEntryPoints(classes, classDescriptions, shard, entryPointFilePackage, writer, manifest, report);
+  }
+
+  private Set<Class<?>> classesNotUpToDate(Set<Class<?>> filteredClasses, TypeHierarchyIndex hierarchy,
+	                                       GenerationManifest previousManifest, GenerationManifest manifest,
+	                                       AssertionsGeneratorReport report) throws IOException {
+	boolean previousFilesReusable = manifest.isCompatibleWith(previousManifest);
+	Set<Class<?>> classesToGenerate = newLinkedHashSet();
+	for (Class<?> clazz : filteredClasses) {
+	  String className = clazz.getName();
+	  String fingerprint = fingerprintOf(clazz, hierarchy);
+	  manifest.recordClass(className, fingerprint);
+	  if (previousFilesReusable && previousManifest.isUpToDate(className, fingerprint)) {
+		File[] upToDateFiles = previousManifest.generatedFilesOf(className);
+		manifest.recordGeneratedFiles(className, upToDateFiles);
+		report.addUpToDateAssertionFiles(upToDateFiles.length);
+	  } else {
+		classesToGenerate.add(clazz);
+	  }
+	}
+	return classesToGenerate;
+  }
+
+  private String fingerprintOf(Class<?> clazz, TypeHierarchyIndex hierarchy) throws IOException {
+	String fingerprint = fingerprinter.fingerprintOf(clazz);
+	if (hierarchy == null) return fingerprint;
+	// hierarchical assertions depend on which superclasses get their own assertions
+	StringBuilder hierarchicalFingerprint = new StringBuilder(fingerprint);
+	for (Class<?> superclass : hierarchy.generatedSuperclassesOf(clazz)) {
+	  hierarchicalFingerprint.append(':').append(superclass.getName());
+	}
+	return hierarchicalFingerprint.toString();
+  }
+
+  private static void removeEntryPointsNoLongerGenerated(GenerationManifest previousManifest,
+	                                                     GenerationManifest manifest, AssertionsGeneratorReport report)
+	  throws IOException {
+	for (File obsoleteFile : previousManifest.entryPointFilesNotIn(manifest)) {
+	  if (obsoleteFile.delete()) report.addRemovedAssertionFile(obsoleteFile);
+	}
+  }
+
+  private void removeAssertionsOfClassesNoLongerGenerated(GenerationManifest previousManifest,
+	                                                      GenerationManifest manifest, AssertionsGeneratorReport report)
+	  throws IOException {
+	for (String removedClassName : previousManifest.classesNotIn(manifest)) {
+	  for (File obsoleteFile : previousManifest.generatedFilesOf(removedClassName)) {
+		if (obsoleteFile.delete()) report.addRemovedAssertionFile(obsoleteFile);
+	  }
+	}
+  }
+
+  private String configurationOf(boolean hierarchical, String entryPointFilePackage) {
+	return "hierarchical=" + hierarchical + ",entryPointPackage=" + entryPointFilePackage + ",entryPoints="
+	       + newTreeSet(assertionsEntryPointToGenerate) + ",entryPointSharding=" + entryPointSharding + ":"
+	       + entryPointShardPackageDepth + ",templates=" + templatesFingerprint;
+  }
+
+  /**
+   * Collects the classes to generate assertions for, the names of the classes rejected by the include/exclude patterns
+   * or because they are assertions classes are added to given excluded class names.
+   * <p>
+   * When scanning bytecode, classes are filtered on their name before being loaded so that excluded classes are never
+   * loaded.
+   */
+  @SuppressWarnings("unchecked")
+  private Set<Class<?>> collectClassesFrom(String[] inputPackages, String[] inputClassNames,
+	                                       Set<String> excludedClassNames) throws IOException {
+	String[] classOrPackageNames = addAll(inputPackages, inputClassNames);
+	Checkpoint checkpoint = metrics.start();
+	if (!scanBytecode) {
+	  Set<Class<?>> classes = collectClasses(classLoader, classOrPackageNames);
+	  if (scanRoots != null) removeClassesOfPackagesOutsideOfScanRoots(classes, inputClassNames);
+	  checkpoint = metrics.record(CLASS_COLLECTION, checkpoint);
+	  Set<Class<?>> filteredClasses = removeAssertClasses(classes);
+	  removeClassesAccordingToIncludeAndExcludePatterns(filteredClasses);
+	  excludedClassNames.addAll(classNamesOf(subtract(classes, filteredClasses)));
+	  metrics.record(FILTERING, checkpoint);
+	  return filteredClasses;
+	}
+	Set<String> explicitClassNames = newLinkedHashSet();
+	List<String> packageNames = new ArrayList<String>();
+	for (String classOrPackageName : classOrPackageNames) {
+	  if (isClassOnClasspath(classOrPackageName)) explicitClassNames.add(classOrPackageName);
+	  else packageNames.add(classOrPackageName);
+	}
+	Set<String> classNames = newLinkedHashSet(explicitClassNames);
+	ClasspathScanner scanner = new ClasspathScanner(classLoader, classpathIndex, scanRoots, taskRunner);
+	classNames.addAll(scanner.findClassNamesInPackages(packageNames.toArray(new String[0])));
+	checkpoint = metrics.record(CLASS_COLLECTION, checkpoint);
+	List<String> enabledClassNames = new ArrayList<String>(classNames.size());
+	for (String className : classNames) {
+	  if (isAssertionsGenerationEnabledFor(className)) enabledClassNames.add(className);
+	  else excludedClassNames.add(className);
+	}
+	checkpoint = metrics.record(FILTERING, checkpoint);
+	Set<Class<?>> classes = newLinkedHashSet();
+	for (String className : enabledClassNames) {
+	  Class<?> clazz = loadClass(className);
+	  if (clazz == null) continue;
+	  // classes found by scanning have already been checked from their bytecode
+	  if (!explicitClassNames.contains(className) || isCandidateToAssertionsGeneration(clazz)) classes.add(clazz);
+	}
+	metrics.record(CLASS_COLLECTION, checkpoint);
+	return classes;
+  }
+
+  private void removeClassesOfPackagesOutsideOfScanRoots(Set<Class<?>> classes, String[] inputClassNames) {
+	Set<String> explicitClassNames = newLinkedHashSet(asList(nullToEmpty(inputClassNames)));
+	for (Iterator<Class<?>> it = classes.iterator(); it.hasNext();) {
+	  Class<?> clazz = it.next();
+	  if (!explicitClassNames.contains(clazz.getName()) && !scanRoots.contains(classpathRootOf(clazz))) it.remove();
+	}
+  }
+
+  private static File classpathRootOf(Class<?> clazz) {
+	CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+	if (codeSource == null || codeSource.getLocation() == null) return null;
+	File classpathRoot = ClasspathScanner.fileOf(codeSource.getLocation());
+	return classpathRoot == null ? null : classpathRoot.getAbsoluteFile();
+  }
+
+  private boolean isClassOnClasspath(String className) {
+	return classLoader.getResource(className.replace('.', '/') + ".class") != null;
+  }
+
+  /**
+   * Loads the given class without initializing it, returns null if it can't be loaded.
+   */
+  private Class<?> loadClass(String className) {
+	try {
+	  return Class.forName(className, false, classLoader);
+	} catch (ClassNotFoundException e) {
+	  return null;
+	} catch (LinkageError e) {
+	  if (log != null) log.debug("Won't generate assertions for " + className + " as it can't be loaded : " + e);
+	  return null;
+	}
+  }
+
+  private static boolean isCandidateToAssertionsGeneration(Class<?> clazz) {
+	return isPublic(clazz.getModifiers()) && !clazz.isAnonymousClass() && !clazz.isLocalClass();
+  }
+
+  /**
+   * Removes the classes found in the input packages that the test sources do not use, the superclasses of the used
+   * classes are kept for hierarchical assertions as their assertions extend the superclasses ones.
+   * <p>
+   * The classes reachable from a used class through its public fields and methods types are kept too: a test can get
+   * one from a used class, e.g. <code>assertThat(order.getCustomer())</code>, without writing its name.
+   */
+  private Set<Class<?>> removeClassesUnusedByTests(Set<Class<?>> classes, String[] inputClassNames,
+	                                               boolean hierarchical, AssertionsGeneratorReport report)
+	  throws IOException {
+	Set<String> usedClassNames = testSourceUsages.usedClassNamesAmong(classNamesOf(classes));
+	usedClassNames.addAll(asList(nullToEmpty(inputClassNames)));
+	Set<Class<?>> keptClasses = newHashSet();
+	List<Class<?>> classesToVisit = newArrayList();
+	for (Class<?> clazz : classes) {
+	  if (usedClassNames.contains(clazz.getName())) classesToVisit.add(clazz);
+	}
+	while (!classesToVisit.isEmpty()) {
+	  Class<?> clazz = classesToVisit.remove(classesToVisit.size() - 1);
+	  if (!keptClasses.add(clazz)) continue;
+	  for (Class<?> reachableClass : classesReachableFrom(clazz)) {
+		if (classes.contains(reachableClass)) classesToVisit.add(reachableClass);
+	  }
+	  if (!hierarchical) continue;
+	  for (Class<?> superclass = clazz.getSuperclass(); superclass != null; superclass = superclass.getSuperclass()) {
+		if (classes.contains(superclass)) classesToVisit.add(superclass);
+	  }
+	}
+	// keeps the classes order
+	Set<Class<?>> usedClasses = newLinkedHashSet();
+	Set<String> prunedClassNames = newTreeSet();
+	for (Class<?> clazz : classes) {
+	  if (keptClasses.contains(clazz)) usedClasses.add(clazz);
+	  else prunedClassNames.add(clazz.getName());
+	}
+	report.setClassesPrunedFromAssertionGeneration(prunedClassNames);
+	return usedClasses;
+  }
+
+  /**
+   * Returns the classes appearing in the types of the given class public fields and methods, including the type
+   * arguments so that the elements of a <code>List&lt;Address&gt;</code> property are reachable.
+   */
+  private static Set<Class<?>> classesReachableFrom(Class<?> clazz) {
+	Set<Class<?>> reachableClasses = newHashSet();
+	try {
+	  for (Field field : clazz.getFields()) {
+		addClassesOf(field.getGenericType(), reachableClasses, new HashSet<Type>());
+	  }
+	  for (Method method : clazz.getMethods()) {
+		addClassesOf(method.getGenericReturnType(), reachableClasses, new HashSet<Type>());
+	  }
+	} catch (LinkageError e) {
+	  // a member type missing from the classpath, the assertions generation will report it
+	}
+	return reachableClasses;
+  }
+
+  private static void addClassesOf(Type type, Set<Class<?>> classes, Set<Type> visitedTypes) {
+	if (!visitedTypes.add(type)) return;
+	if (type instanceof Class) {
+	  Class<?> clazz = (Class<?>) type;
+	  while (clazz.isArray()) {
+		clazz = clazz.getComponentType();
+	  }
+	  classes.add(clazz);
+	} else if (type instanceof ParameterizedType) {
+	  addClassesOf(((ParameterizedType) type).getRawType(), classes, visitedTypes);
+	  for (Type typeArgument : ((ParameterizedType) type).getActualTypeArguments()) {
+		addClassesOf(typeArgument, classes, visitedTypes);
+	  }
+	} else if (type instanceof GenericArrayType) {
+	  addClassesOf(((GenericArrayType) type).getGenericComponentType(), classes, visitedTypes);
+	} else if (type instanceof WildcardType) {
+	  for (Type bound : ((WildcardType) type).getUpperBounds()) {
+		addClassesOf(bound, classes, visitedTypes);
+	  }
+	} else if (type instanceof TypeVariable) {
+	  for (Type bound : ((TypeVariable<?>) type).getBounds()) {
+		addClassesOf(bound, classes, visitedTypes);
+	  }
+	}
+  }
+
+  private static Set<String> classNamesOf(Collection<Class<?>> classes) {
+	Set<String> classNames = newTreeSet();
+	for (Class<?> clazz : classes) {
+	  classNames.add(clazz.getName());
+	}
+	return classNames;
+  }
+
+  @VisibleForTesting
+  boolean isAssertionsGenerationEnabledFor(String className) {
+	return !isAssertClass(simpleNameOf(className)) && isIncluded(className) && !isExcluded(className);
+  }
+
+  private static String simpleNameOf(String className) {
+	return className.substring(Math.max(className.lastIndexOf('.'), className.lastIndexOf('$')) + 1);
+  }
+
   private void removeClassesAccordingToIncludeAndExcludePatterns(Set<Class<?>> filteredClasses) {
 	for (Iterator<Class<?>> it = filteredClasses.iterator(); it.hasNext();) {
-	  Class<?> element = it.next();
-	  if (!isIncluded(element) || isExcluded(element)) it.remove();
+	  String className = it.next().getName();
+	  if (!isIncluded(className) || isExcluded(className)) it.remove();
 	}
   }
 
-  private boolean isIncluded(Class<?> element) {
-	String className = element.getName();
-	for (Pattern includePattern : includePatterns) {
-	  if (includePattern.matcher(className).matches()) return true;
+  private boolean isIncluded(String className) {
+	if (includeMatcher.matches(className)) return true;
+	if (log != null && log.isDebugEnabled()) {
+	  log.debug("Won't generate assertions for " + className + " as it does not match any include regex.");
 	}
-	log.debug("Won't generate assertions for " + className + " as it does not match any include regex.");
 	return false;
   }
 
-  private boolean isExcluded(Class<?> element) {
-	String className = element.getName();
-	for (Pattern excludePattern : excludePatterns) {
-	  if (excludePattern.matcher(className).matches()) {
-		log.debug("Won't generate assertions for " + className + " as it matches exclude regex : " + excludePattern);
-		return true;
-	  }
+  private boolean isExcluded(String className) {
+	if (!excludeMatcher.matches(className)) return false;
+	if (log != null && log.isDebugEnabled()) {
+	  log.debug("Won't generate assertions for " + className + " as it matches exclude regex : "
+		        + excludeMatcher.firstMatchingRegex(className));
 	}
-	return false;
+	return true;
   }
 
-  private Set<Class<?>> removeAssertClasses(Set<Class<?>> classList) {
+  @VisibleForTesting
+  Set<Class<?>> removeAssertClasses(Set<Class<?>> classList) {
 	Set<Class<?>> filteredClassList = newLinkedHashSet();
 	for (Class<?> clazz : classList) {
-	  String classSimpleName = clazz.getSimpleName();
-	  if (!classSimpleName.endsWith("Assert") && !classSimpleName.endsWith("Assertions")) {
-		filteredClassList.add(clazz);
-	  }
+	  if (!isAssertClass(clazz.getSimpleName())) filteredClassList.add(clazz);
 	}
 	return filteredClassList;
   }
 
+  private static boolean isAssertClass(String classSimpleName) {
+	return classSimpleName.endsWith("Assert") || classSimpleName.endsWith("Assertions");
+  }
+
+  private static class GeneratedAssertions {
+	private final Class<?> clazz;
+	// null when the assertions were taken from the cache
+	private final ClassDescription classDescription;
+	private final File[] files;
+
+	GeneratedAssertions(Class<?> clazz, ClassDescription classDescription, File[] files) {
+	  this.clazz = clazz;
+	  this.classDescription = classDescription;
+	  this.files = files;
+	}
+  }
+
   @VisibleForTesting
   public void setBaseGenerator(BaseAssertionGenerator generator) {
 	this.generator = generator;
+	this.sharedGenerator = false;
+  }
+
+  /**
+   * Renders assertions with the templates of the given directory rather than the default ones (null to use the default
+   * ones). Templates are loaded once for the whole JVM and only loaded again when the directory content changes, the
+   * assertions generated or cached with other templates are regenerated.
+   */
+  public void setTemplatesDirectory(File templatesDirectory) throws IOException {
+	AssertionTemplates templates = templatesDirectory == null ? AssertionTemplates.defaults()
+	    : AssertionTemplates.of(templatesDirectory);
+	this.generator = templates.getGenerator();
+	this.sharedGenerator = true;
+	this.templatesFingerprint = templates.getFingerprint();
   }
 
   public void setLog(Log log) {
@@ -184,4 +850,126 @@ public class AssertionsGenerator {
 	this.assertionsEntryPointToGenerate.add(type);
   }
 
+  /**
+   * Enables incremental generation: a manifest kept in the destination directory records what has been generated so
+   * that the next runs only regenerate assertions of classes that have changed.
+   */
+  public void setIncremental(boolean incremental) {
+	this.incremental = incremental;
+  }
+
+  /**
+   * Generates all the assertions in the given zip archive instead of writing them as files in the destination
+   * directory, the paths of the archive entries being relative to the destination directory. The archive is entirely
+   * rewritten on each generation, incremental generation is thus not used. Sources are written with the platform
+   * encoding.
+   */
+  public void setOutputArchive(File outputArchive) {
+	setOutputArchive(outputArchive, Charset.defaultCharset());
+  }
+
+  /**
+   * Same as {@link #setOutputArchive(File)} with the sources written with the given encoding, the one they are
+   * compiled with.
+   */
+  public void setOutputArchive(File outputArchive, Charset charset) {
+	this.outputArchive = outputArchive;
+	this.outputArchiveCharset = charset;
+  }
+
+  /**
+   * Hands the generated sources over to the given destination (from a single thread) instead of writing them in the
+   * destination directory, which is then only used to report the generated files. Incremental generation is not used.
+   */
+  public void setSourceFileDestination(SourceFileDestination sourceFileDestination) {
+	this.sourceFileDestination = sourceFileDestination;
+  }
+
+  /**
+   * Restricts the search of the classes of the input packages to the given classpath directories and jars, the
+   * classes are still loaded from the whole classpath. By default the whole classpath is searched.
+   */
+  public void setScanRoots(Collection<File> scanRoots) {
+	// roots are scanned in the given (class loader) order
+	this.scanRoots = new LinkedHashSet<File>();
+	for (File scanRoot : scanRoots) {
+	  this.scanRoots.add(scanRoot.getAbsoluteFile());
+	}
+  }
+
+  /**
+   * Discovers the classes of the input packages by reading their class files instead of loading all the classes of
+   * the packages, only classes eligible to assertions generation are then loaded, and without being initialized.
+   */
+  public void setScanBytecode(boolean scanBytecode) {
+	this.scanBytecode = scanBytecode;
+  }
+
+  /**
+   * Only writes the files whose content has changed, unchanged files keep their timestamp. The default is to always
+   * write the files.
+   */
+  public void setWriteChangedFilesOnly(boolean writeChangedFilesOnly) {
+	this.writeChangedFilesOnly = writeChangedFilesOnly;
+  }
+
+  /**
+   * Enables the cache of rendered assertions kept in the given directory, it can be shared by the modules of a build
+   * and by successive builds. Once over the given size, least recently used entries are removed.
+   * <p>
+   * The cache is only used when {@link #setWriteChangedFilesOnly(boolean) rendering assertions in memory}, the index
+   * of the classes of the classpath jars kept in the same directory is used whenever bytecode is scanned.
+   */
+  public void setCacheDirectory(File cacheDirectory, long cacheMaxSizeInBytes) {
+	this.cache = new AssertionsCache(cacheDirectory, cacheMaxSizeInBytes);
+	this.classpathIndex = new ClasspathIndex(cacheDirectory);
+  }
+
+  /**
+   * Streams the report entries (generated files, excluded classes...) to the given file as they are produced rather
+   * than keeping them all in the report, the report then only lists the first given number of entries of each kind.
+   * Paths are written relative to the directory where assertions are generated, without being canonicalized.
+   */
+  public void setReportFile(File reportFile, ReportFormat reportFormat, int consoleEntriesLimit) {
+	this.reportFile = reportFormat.isStreamed() ? reportFile : null;
+	this.reportFormat = reportFormat;
+	this.reportConsoleEntriesLimit = consoleEntriesLimit;
+  }
+
+  /**
+   * Sets the metrics the generation phases are recorded in, useful to add phases measured before the generation.
+   */
+  public void setGenerationMetrics(GenerationMetrics metrics) {
+	this.metrics = metrics;
+  }
+
+  /**
+   * Sets the number of threads used to scan the classpath, convert classes to descriptions and render their
+   * assertions, the default is to use a single thread. The generated files are the same whatever the number of threads.
+   */
+  public void setThreads(int threads) {
+	this.taskRunner = new TaskRunner(threads);
+  }
+
+  /**
+   * Only generates assertions for the classes of the input packages that the sources in the given test source roots
+   * use, and for the superclasses of these classes with hierarchical assertions. Classes given by name are always
+   * generated. The references of each test source are kept in the given index file, so that only the sources changed
+   * since the previous generation are read.
+   */
+  public void setUsageSources(Collection<File> testSourceRoots, File usageIndexFile) {
+	this.testSourceUsages = new TestSourceUsages(testSourceRoots, usageIndexFile);
+  }
+
+  /**
+   * Splits the entry points per package: each package gets its own entry points, generated in the package and ignoring
+   * the entry point package given to {@link #generateAssertionsFor(String[], String[], String, String, boolean)}. A
+   * positive package depth groups the packages by their first package names instead, for example
+   * <code>com.acme.sales</code> with a depth of 2 gets the entry points of all the <code>com.acme</code> packages.
+   */
+  public void setEntryPointSharding(EntryPointSharding entryPointSharding, int packageDepth) {
+	this.entryPointSharding = entryPointSharding;
+	this.entryPointShardPackageDepth = packageDepth;
+  }
+
 }
@@ -21,9 +21,11 @@ import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.assertj.assertions.generator.AssertionsEntryPointType;
@@ -35,16 +37,34 @@ public class AssertionsGeneratorReport {
   private static final String SECTION_END = " ---\n";
   private String directoryPathWhereAssertionFilesAreGenerated;
   private Set<String> generatedCustomAssertionFileNames;
-  private Map<AssertionsEntryPointType, File> assertionsEntryPointFilesByType;
+  private int upToDateCustomAssertionFilesCount;
+  private int cachedCustomAssertionFilesCount;
+  private Set<String> removedCustomAssertionFileNames;
+  private boolean fileWritesReported;
+  private int writtenFilesCount;
+  private int unchangedFilesCount;
+  // several files per type when entry points are sharded
+  private Map<AssertionsEntryPointType, Set<File>> assertionsEntryPointFilesByType;
   private String[] inputPackages;
   private String[] inputClasses;
   private Exception exception;
-  private Collection<Class<?>> excludedClassesFromAssertionGeneration;
+  private Collection<String> excludedClassesFromAssertionGeneration;
   private Set<String> inputClassesNotFound;
+  private GenerationMetrics generationMetrics;
+  // when set, entries are streamed to a report file and only the first entries are kept for the console
+  private ReportEntryWriter entryWriter;
+  private File entriesFile;
+  private int consoleEntriesLimit = Integer.MAX_VALUE;
+  private int generatedCustomAssertionFilesCount;
+  private int removedCustomAssertionFilesCount;
+  private int excludedClassesCount;
+  private Collection<String> classesPrunedFromAssertionGeneration;
+  private int prunedClassesCount;
 
   public AssertionsGeneratorReport() {
 	assertionsEntryPointFilesByType = newTreeMap();
 	generatedCustomAssertionFileNames = newTreeSet();
+	removedCustomAssertionFileNames = newTreeSet();
 	inputClassesNotFound = newTreeSet();
 	directoryPathWhereAssertionFilesAreGenerated = "no directory set";
   }
@@ -53,8 +73,89 @@ public class AssertionsGeneratorReport {
 	this.directoryPathWhereAssertionFilesAreGenerated = directory;
   }
 
+  /**
+   * Streams the report entries to the given file in the given format as they are reported, the console report then
+   * only lists the first given number of entries of each kind. Paths are written relative to the directory where
+   * assertions are generated.
+   */
+  void streamEntriesTo(File file, ReportFormat format, int consoleEntriesLimit) throws IOException {
+	this.entryWriter = new ReportEntryWriter(file, format);
+	this.entriesFile = file;
+	this.consoleEntriesLimit = consoleEntriesLimit;
+  }
+
+  /**
+   * Writes the counts at the end of the streamed entries and closes the report file.
+   */
+  void closeEntriesStream() throws IOException {
+	if (entryWriter == null) return;
+	try {
+	  entryWriter.write("generatedCount", generatedCustomAssertionFilesCount);
+	  entryWriter.write("upToDateCount", upToDateCustomAssertionFilesCount);
+	  entryWriter.write("cachedCount", cachedCustomAssertionFilesCount);
+	  entryWriter.write("removedCount", removedCustomAssertionFilesCount);
+	  entryWriter.write("excludedCount", excludedClassesCount);
+	  entryWriter.write("prunedCount", prunedClassesCount);
+	  if (fileWritesReported) {
+		entryWriter.write("writtenCount", writtenFilesCount);
+		entryWriter.write("unchangedCount", unchangedFilesCount);
+	  }
+	  if (exception != null) entryWriter.write("error", exception.toString());
+	} finally {
+	  entryWriter.close();
+	  entryWriter = null;
+	}
+  }
+
   public void addGeneratedAssertionFile(File generatedCustomAssertionFile) throws IOException {
-	generatedCustomAssertionFileNames.add(generatedCustomAssertionFile.getCanonicalPath());
+	generatedCustomAssertionFilesCount++;
+	if (entryWriter == null) {
+	  generatedCustomAssertionFileNames.add(generatedCustomAssertionFile.getCanonicalPath());
+	  return;
+	}
+	String relativePath = relativePathOf(generatedCustomAssertionFile);
+	entryWriter.write("generated", relativePath);
+	if (generatedCustomAssertionFileNames.size() < consoleEntriesLimit) generatedCustomAssertionFileNames.add(relativePath);
+  }
+
+  public void addUpToDateAssertionFiles(int upToDateFilesCount) {
+	upToDateCustomAssertionFilesCount += upToDateFilesCount;
+  }
+
+  public void addCachedAssertionFiles(int cachedFilesCount) {
+	cachedCustomAssertionFilesCount += cachedFilesCount;
+  }
+
+  public void addRemovedAssertionFile(File removedCustomAssertionFile) throws IOException {
+	removedCustomAssertionFilesCount++;
+	if (entryWriter == null) {
+	  removedCustomAssertionFileNames.add(removedCustomAssertionFile.getAbsolutePath());
+	  return;
+	}
+	String relativePath = relativePathOf(removedCustomAssertionFile);
+	entryWriter.write("removed", relativePath);
+	if (removedCustomAssertionFileNames.size() < consoleEntriesLimit) removedCustomAssertionFileNames.add(relativePath);
+  }
+
+  /**
+   * Returns the path of the given file relative to the directory where assertions are generated, without accessing
+   * the file system.
+   */
+  private String relativePathOf(File file) {
+	String directoryPath = new File(directoryPathWhereAssertionFilesAreGenerated).getPath() + File.separator;
+	String path = file.getPath();
+	if (!path.startsWith(directoryPath)) return path;
+	return path.substring(directoryPath.length()).replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Reports how many generated files have been written and how many have been left untouched as their content had not
+   * changed.
+   */
+  public void reportFileWrites(int writtenFilesCount, int unchangedFilesCount) {
+	this.fileWritesReported = true;
+	this.writtenFilesCount = writtenFilesCount;
+	this.unchangedFilesCount = unchangedFilesCount;
   }
 
   public String getReportContent() {
@@ -73,6 +174,7 @@ public class AssertionsGeneratorReport {
 	} else {
 	  buildGeneratorReportSuccess(reportBuilder);
 	}
+	if (generationMetrics != null) buildGenerationMetricsReport(reportBuilder);
 	return reportBuilder.toString();
   }
 
@@ -85,6 +187,30 @@ public class AssertionsGeneratorReport {
 	for (String fileName : generatedCustomAssertionFileNames) {
 	  reportBuilder.append(INDENT).append(fileName).append("\n");
 	}
+	reportEntriesNotListed(reportBuilder, generatedCustomAssertionFilesCount, generatedCustomAssertionFileNames.size());
+	if (fileWritesReported) {
+	  reportBuilder.append("\n");
+	  reportBuilder.append(writtenFilesCount).append(" files written, ").append(unchangedFilesCount)
+	               .append(" files left untouched as their content has not changed.\n");
+	}
+	if (cachedCustomAssertionFilesCount > 0) {
+	  reportBuilder.append("\n");
+	  reportBuilder.append(cachedCustomAssertionFilesCount)
+	               .append(" custom assertions files were taken from the assertions cache.\n");
+	}
+	if (upToDateCustomAssertionFilesCount > 0) {
+	  reportBuilder.append("\n");
+	  reportBuilder.append(upToDateCustomAssertionFilesCount)
+	               .append(" custom assertions files were up to date and have not been regenerated.\n");
+	}
+	if (!removedCustomAssertionFileNames.isEmpty()) {
+	  reportBuilder.append("\n");
+	  reportBuilder.append("Custom assertions files removed as their class is not part of the input anymore:\n");
+	  for (String fileName : removedCustomAssertionFileNames) {
+		reportBuilder.append(INDENT).append(fileName).append("\n");
+	  }
+	  reportEntriesNotListed(reportBuilder, removedCustomAssertionFilesCount, removedCustomAssertionFileNames.size());
+	}
 	if (!inputClassesNotFound.isEmpty()) {
 	  reportBuilder.append("\n");
 	  reportBuilder.append("No custom assertions files generated for the following input classes as they were not found:\n");
@@ -95,13 +221,34 @@ public class AssertionsGeneratorReport {
 	reportEntryPointClassesGeneration(reportBuilder);
   }
 
+  private void reportEntriesNotListed(StringBuilder reportBuilder, int entriesCount, int listedEntriesCount) {
+	// entries are only left out of the console report when they are streamed, unstreamed ones are all listed even
+	// when the count differs as an entry reported twice is listed once
+	if (entriesFile == null || entriesCount == listedEntriesCount) return;
+	reportBuilder.append(INDENT).append("... ").append(entriesCount - listedEntriesCount).append(" more (")
+	             .append(entriesCount).append(" in total), see ").append(entriesFile.getPath()).append("\n");
+  }
+
+  private void buildGenerationMetricsReport(StringBuilder reportBuilder) {
+	reportBuilder.append("\n");
+	reportBuilder.append(SECTION_START).append("Generation metrics").append(SECTION_END);
+	reportBuilder.append("\n");
+	reportBuilder.append("Time (summed over threads) and memory allocated by phase:\n");
+	reportBuilder.append(generationMetrics.getSummary());
+  }
+
   private void reportEntryPointClassesGeneration(StringBuilder reportBuilder) {
-	for (AssertionsEntryPointType type : assertionsEntryPointFilesByType.keySet()) {
-	  if (assertionsEntryPointFilesByType.get(type) != null) {
-		String entryPointClassName = remove(type.getFileName(), ".java");
+	for (Entry<AssertionsEntryPointType, Set<File>> entryPointFiles : assertionsEntryPointFilesByType.entrySet()) {
+	  String entryPointClassName = remove(entryPointFiles.getKey().getFileName(), ".java");
+	  if (entryPointFiles.getValue().size() == 1) {
 		reportBuilder.append("\n")
-		             .append(entryPointClassName).append(" entry point class has been generated in file:\n")
-		             .append(INDENT).append(assertionsEntryPointFilesByType.get(type).getAbsolutePath()).append("\n");
+		             .append(entryPointClassName).append(" entry point class has been generated in file:\n");
+	  } else {
+		reportBuilder.append("\n").append(entryPointClassName)
+		             .append(" entry point classes have been generated in files:\n");
+	  }
+	  for (File entryPointFile : entryPointFiles.getValue()) {
+		reportBuilder.append(INDENT).append(entryPointFile.getAbsolutePath()).append("\n");
 	  }
 	}
   }
@@ -159,9 +306,18 @@ public class AssertionsGeneratorReport {
 	if (isNotEmpty(excludedClassesFromAssertionGeneration)) {
 	  reportBuilder.append("\n");
 	  reportBuilder.append("Input classes excluded from assertions generation:\n");
-	  for (Class<?> excludedClass : excludedClassesFromAssertionGeneration) {
-		reportBuilder.append(INDENT).append(excludedClass.getName()).append("\n");
+	  for (String excludedClass : excludedClassesFromAssertionGeneration) {
+		reportBuilder.append(INDENT).append(excludedClass).append("\n");
 	  }
+	  reportEntriesNotListed(reportBuilder, excludedClassesCount, excludedClassesFromAssertionGeneration.size());
+	}
+	if (isNotEmpty(classesPrunedFromAssertionGeneration)) {
+	  reportBuilder.append("\n");
+	  reportBuilder.append("Input classes pruned from assertions generation as the test sources do not use them:\n");
+	  for (String prunedClass : classesPrunedFromAssertionGeneration) {
+		reportBuilder.append(INDENT).append(prunedClass).append("\n");
+	  }
+	  reportEntriesNotListed(reportBuilder, prunedClassesCount, classesPrunedFromAssertionGeneration.size());
 	}
   }
 
@@ -170,12 +326,21 @@ public class AssertionsGeneratorReport {
   }
 
   private boolean nothingGenerated() {
-	return generatedCustomAssertionFileNames.isEmpty();
+	return generatedCustomAssertionFilesCount == 0 && upToDateCustomAssertionFilesCount == 0;
   }
 
   public void reportEntryPointGeneration(AssertionsEntryPointType assertionsEntryPointType,
-	                                     File assertionsEntryPointFile) {
-	this.assertionsEntryPointFilesByType.put(assertionsEntryPointType, assertionsEntryPointFile);
+	                                     File assertionsEntryPointFile) throws IOException {
+	if (assertionsEntryPointFile == null) return;
+	Set<File> entryPointFiles = assertionsEntryPointFilesByType.get(assertionsEntryPointType);
+	if (entryPointFiles == null) {
+	  entryPointFiles = newTreeSet();
+	  assertionsEntryPointFilesByType.put(assertionsEntryPointType, entryPointFiles);
+	}
+	entryPointFiles.add(assertionsEntryPointFile);
+	if (entryWriter != null) {
+	  entryWriter.write("entryPoint", relativePathOf(assertionsEntryPointFile));
+	}
   }
 
   public void setInputPackages(String[] packages) {
@@ -194,22 +359,88 @@ public class AssertionsGeneratorReport {
 	return exception;
   }
 
-  public void setExcludedClassesFromAssertionGeneration(Collection<Class<?>> excludedClassSet) {
-	this.excludedClassesFromAssertionGeneration = excludedClassSet;
+  public void setExcludedClassesFromAssertionGeneration(Collection<String> excludedClassSet) throws IOException {
+	excludedClassesCount = excludedClassSet.size();
+	if (entryWriter == null) {
+	  this.excludedClassesFromAssertionGeneration = excludedClassSet;
+	  return;
+	}
+	excludedClassesFromAssertionGeneration = new ArrayList<String>();
+	for (String excludedClass : excludedClassSet) {
+	  entryWriter.write("excluded", excludedClass);
+	  if (excludedClassesFromAssertionGeneration.size() < consoleEntriesLimit) {
+		excludedClassesFromAssertionGeneration.add(excludedClass);
+	  }
+	}
+  }
+
+  public void setClassesPrunedFromAssertionGeneration(Collection<String> prunedClassSet) throws IOException {
+	prunedClassesCount = prunedClassSet.size();
+	if (entryWriter == null) {
+	  this.classesPrunedFromAssertionGeneration = prunedClassSet;
+	  return;
+	}
+	classesPrunedFromAssertionGeneration = new ArrayList<String>();
+	for (String prunedClass : prunedClassSet) {
+	  entryWriter.write("pruned", prunedClass);
+	  if (classesPrunedFromAssertionGeneration.size() < consoleEntriesLimit) {
+		classesPrunedFromAssertionGeneration.add(prunedClass);
+	  }
+	}
+  }
+
+  /**
+   * Returns the classes pruned as the test sources do not use them, only the first ones when entries are streamed to
+   * a report file.
+   */
+  public Collection<String> getClassesPrunedFromAssertionGeneration() {
+	return classesPrunedFromAssertionGeneration;
+  }
+
+  /**
+   * Returns the generated files, only the first ones when entries are streamed to a report file.
+   */
+  public Set<String> getGeneratedCustomAssertionFileNames() {
+	return generatedCustomAssertionFileNames;
+  }
+
+  public int getGeneratedCustomAssertionFilesCount() {
+	return generatedCustomAssertionFilesCount;
+  }
+
+  public int getUpToDateCustomAssertionFilesCount() {
+	return upToDateCustomAssertionFilesCount;
+  }
+
+  public int getCachedCustomAssertionFilesCount() {
+	return cachedCustomAssertionFilesCount;
+  }
+
+  public int getWrittenFilesCount() {
+	return writtenFilesCount;
+  }
+
+  public int getUnchangedFilesCount() {
+	return unchangedFilesCount;
+  }
+
+  public void setGenerationMetrics(GenerationMetrics generationMetrics) {
+	this.generationMetrics = generationMetrics;
+  }
+
+  public GenerationMetrics getGenerationMetrics() {
+	return generationMetrics;
   }
 
   public Set<String> getInputClassesNotFound() {
 	return inputClassesNotFound;
   }
 
-  public void reportInputClassesNotFound(Set<Class<?>> classes, String[] inputClassNames) {
-	Set<String> classesFound = newTreeSet();
-	for (Class<?> clazz : classes) {
-	  classesFound.add(clazz.getName());
-	}
+  public void reportInputClassesNotFound(Set<String> classNamesFound, String[] inputClassNames) throws IOException {
 	for (String inputClass : inputClassNames) {
-	  if (!classesFound.contains(inputClass)) {
+	  if (!classNamesFound.contains(inputClass)) {
 		inputClassesNotFound.add(inputClass);
+		if (entryWriter != null) entryWriter.write("notFound", inputClass);
 	  }
 	}
   }
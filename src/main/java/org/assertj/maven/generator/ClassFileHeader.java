@@ -0,0 +1,211 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The part of a class file that precedes fields and methods: access flags, class name, superclass and interfaces
+ * names.
+ * <p>
+ * Reading it does not load the class, it is used to decide if a class is worth loading before calling
+ * {@link Class#forName(String, boolean, ClassLoader)}.
+ * <p>
+ * The class file of a nested class is read to the end, its modifiers and whether it is anonymous or local are only
+ * given by the <code>InnerClasses</code> attribute, the one {@link Class#getModifiers()} reads.
+ */
+class ClassFileHeader {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_SYNTHETIC = 0x1000;
+  private static final int ACC_MODULE = 0x8000;
+
+  private static final String INNER_CLASSES_ATTRIBUTE = "InnerClasses";
+
+  private final int accessFlags;
+  private final String className;
+  private final String superclassName;
+  private final String[] interfaceNames;
+  private InnerClass innerClass;
+
+  private ClassFileHeader(int accessFlags, String className, String superclassName, String[] interfaceNames) {
+	this.accessFlags = accessFlags;
+	this.className = className;
+	this.superclassName = superclassName;
+	this.interfaceNames = interfaceNames;
+  }
+
+  /**
+   * Reads the header of the class file given as a stream, the stream is not closed.
+   */
+  static ClassFileHeader read(InputStream classFile) throws IOException {
+	DataInputStream input = new DataInputStream(classFile);
+	if (input.readInt() != MAGIC) throw new IOException("Not a class file (wrong magic number)");
+	input.readUnsignedShort(); // minor version
+	input.readUnsignedShort(); // major version
+	int constantPoolCount = input.readUnsignedShort();
+	String[] utf8Constants = new String[constantPoolCount];
+	int[] classNameIndexes = new int[constantPoolCount];
+	for (int i = 1; i < constantPoolCount; i++) {
+	  int tag = input.readUnsignedByte();
+	  switch (tag) {
+	  case 1: // Utf8
+		utf8Constants[i] = input.readUTF();
+		break;
+	  case 7: // Class
+		classNameIndexes[i] = input.readUnsignedShort();
+		break;
+	  case 8: // String
+	  case 16: // MethodType
+	  case 19: // Module
+	  case 20: // Package
+		input.skipBytes(2);
+		break;
+	  case 15: // MethodHandle
+		input.skipBytes(3);
+		break;
+	  case 3: // Integer
+	  case 4: // Float
+	  case 9: // Fieldref
+	  case 10: // Methodref
+	  case 11: // InterfaceMethodref
+	  case 12: // NameAndType
+	  case 17: // Dynamic
+	  case 18: // InvokeDynamic
+		input.skipBytes(4);
+		break;
+	  case 5: // Long
+	  case 6: // Double
+		input.skipBytes(8);
+		i++; // 8 bytes constants take two constant pool entries
+		break;
+	  default:
+		throw new IOException("Unknown constant pool tag " + tag);
+	  }
+	}
+	int accessFlags = input.readUnsignedShort();
+	String className = classNameAt(input.readUnsignedShort(), utf8Constants, classNameIndexes);
+	String superclassName = classNameAt(input.readUnsignedShort(), utf8Constants, classNameIndexes);
+	String[] interfaceNames = new String[input.readUnsignedShort()];
+	for (int i = 0; i < interfaceNames.length; i++) {
+	  interfaceNames[i] = classNameAt(input.readUnsignedShort(), utf8Constants, classNameIndexes);
+	}
+	ClassFileHeader header = new ClassFileHeader(accessFlags, className, superclassName, interfaceNames);
+	// only nested classes have a '$' in their name, top level ones don't need the rest of the class file
+	if (className.indexOf('$') != -1) header.innerClass = readInnerClass(input, className, utf8Constants,
+	                                                                        classNameIndexes);
+	return header;
+  }
+
+  /**
+   * Reads the fields, the methods and the attributes of the class to find the entry of the given class in its
+   * <code>InnerClasses</code> attribute, returns null if it is not a nested class.
+   */
+  private static InnerClass readInnerClass(DataInputStream input, String className, String[] utf8Constants,
+	                                       int[] classNameIndexes) throws IOException {
+	skipMembers(input); // fields
+	skipMembers(input); // methods
+	int attributeCount = input.readUnsignedShort();
+	for (int i = 0; i < attributeCount; i++) {
+	  String attributeName = utf8Constants[input.readUnsignedShort()];
+	  int attributeLength = input.readInt();
+	  if (!INNER_CLASSES_ATTRIBUTE.equals(attributeName)) {
+		skip(input, attributeLength);
+		continue;
+	  }
+	  int innerClassCount = input.readUnsignedShort();
+	  for (int j = 0; j < innerClassCount; j++) {
+		String innerClassName = classNameAt(input.readUnsignedShort(), utf8Constants, classNameIndexes);
+		int outerClassIndex = input.readUnsignedShort();
+		int innerNameIndex = input.readUnsignedShort();
+		int innerAccessFlags = input.readUnsignedShort();
+		// no outer class for local and anonymous classes, no simple name for anonymous classes
+		if (className.equals(innerClassName)) return new InnerClass(innerAccessFlags, outerClassIndex == 0
+		                                                                              || innerNameIndex == 0);
+	  }
+	  return null;
+	}
+	return null;
+  }
+
+  private static void skipMembers(DataInputStream input) throws IOException {
+	int memberCount = input.readUnsignedShort();
+	for (int i = 0; i < memberCount; i++) {
+	  skip(input, 6); // access flags, name and descriptor
+	  int attributeCount = input.readUnsignedShort();
+	  for (int j = 0; j < attributeCount; j++) {
+		skip(input, 2); // name
+		skip(input, input.readInt());
+	  }
+	}
+  }
+
+  private static void skip(DataInputStream input, int length) throws IOException {
+	if (input.skipBytes(length) != length) throw new EOFException("Truncated class file");
+  }
+
+  private static String classNameAt(int index, String[] utf8Constants, int[] classNameIndexes) {
+	// index 0 is used for the superclass of java.lang.Object
+	if (index == 0) return null;
+	return utf8Constants[classNameIndexes[index]].replace('/', '.');
+  }
+
+  String getClassName() {
+	return className;
+  }
+
+  String getSuperclassName() {
+	return superclassName;
+  }
+
+  String[] getInterfaceNames() {
+	return interfaceNames;
+  }
+
+  /**
+   * Returns true if the class is public, for a nested class as declared in its enclosing class (a protected nested
+   * class is public in its own class file).
+   */
+  boolean isPublic() {
+	int modifiers = innerClass == null ? accessFlags : innerClass.accessFlags;
+	return (modifiers & ACC_PUBLIC) != 0;
+  }
+
+  /**
+   * Returns true if assertions can be generated for this class: public, neither anonymous nor local, not synthetic,
+   * neither a package-info nor a module-info. This is what is checked on loaded classes.
+   */
+  boolean isCandidateToAssertionsGeneration() {
+	if (innerClass != null && innerClass.anonymousOrLocal) return false;
+	return isPublic() && (accessFlags & (ACC_SYNTHETIC | ACC_MODULE)) == 0 && !className.endsWith("package-info")
+	       && !className.equals("module-info");
+  }
+
+  /**
+   * The <code>InnerClasses</code> entry of a nested class.
+   */
+  private static class InnerClass {
+	private final int accessFlags;
+	private final boolean anonymousOrLocal;
+
+	InnerClass(int accessFlags, boolean anonymousOrLocal) {
+	  this.accessFlags = accessFlags;
+	  this.anonymousOrLocal = anonymousOrLocal;
+	}
+  }
+
+}
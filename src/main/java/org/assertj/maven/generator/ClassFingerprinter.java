@@ -0,0 +1,79 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.io.ByteStreams.toByteArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes a hash of the bytecode a generated assertion class depends on, that is the bytecode of the class itself and
+ * of all its supertypes (inherited getters and fields end up in the generated assertions too).
+ * <p>
+ * Supertypes loaded by the bootstrap class loader (JDK classes) only contribute their name.
+ */
+class ClassFingerprinter {
+
+  private final Map<Class<?>, String> fingerprintsByClass = new ConcurrentHashMap<Class<?>, String>();
+
+  String fingerprintOf(Class<?> clazz) throws IOException {
+	String fingerprint = fingerprintsByClass.get(clazz);
+	if (fingerprint == null) {
+	  Hasher hasher = Hashing.sha1().newHasher();
+	  for (Class<?> type : typeAndSupertypesOf(clazz)) {
+		hasher.putString(type.getName(), UTF_8);
+		byte[] bytecode = bytecodeOf(type);
+		if (bytecode != null) hasher.putBytes(bytecode);
+	  }
+	  fingerprint = hasher.hash().toString();
+	  fingerprintsByClass.put(clazz, fingerprint);
+	}
+	return fingerprint;
+  }
+
+  private static Set<Class<?>> typeAndSupertypesOf(Class<?> clazz) {
+	Set<Class<?>> types = new LinkedHashSet<Class<?>>();
+	collectTypeAndSupertypes(clazz, types);
+	return types;
+  }
+
+  private static void collectTypeAndSupertypes(Class<?> type, Set<Class<?>> types) {
+	if (type == null || !types.add(type)) return;
+	collectTypeAndSupertypes(type.getSuperclass(), types);
+	for (Class<?> implementedInterface : type.getInterfaces()) {
+	  collectTypeAndSupertypes(implementedInterface, types);
+	}
+  }
+
+  private static byte[] bytecodeOf(Class<?> type) throws IOException {
+	ClassLoader classLoader = type.getClassLoader();
+	if (classLoader == null) return null;
+	InputStream bytecode = classLoader.getResourceAsStream(type.getName().replace('.', '/') + ".class");
+	if (bytecode == null) return null;
+	try {
+	  return toByteArray(bytecode);
+	} finally {
+	  bytecode.close();
+	}
+  }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tells whether a class name fully matches any of a set of regexes, without running each regex against each class
+ * name.
+ * <p>
+ * Regexes are compiled once:
+ * <ul>
+ * <li>literal class names (like <code>com\.foo\.Bar</code>) and literal prefixes (like <code>com\.foo\..*</code>) go
+ * in a prefix tree,</li>
+ * <li>the other regexes are combined in a single alternation, except those using back references or named groups
+ * whose numbering or naming would clash once combined.</li>
+ * </ul>
+ * Classes are matched per package: the first time a package is seen, the prefix tree tells whether a prefix covers
+ * the whole package and the regexes that can't match any class of the package are discarded (a regex that fails on
+ * the package prefix without needing more input can't match a longer name). This is memoized so that the classes of
+ * a package are only matched against the regexes that can still match them.
+ * <p>
+ * This class is thread safe.
+ */
+class ClassNameMatcher {
+
+  private static final String ANY_SUFFIX = ".*";
+
+  private final String[] regexs;
+  private final Pattern[] patterns;
+  private final PrefixTree literals = new PrefixTree();
+  private final List<Pattern> combinedPatterns = new ArrayList<Pattern>();
+  private final Map<String, PackageMatcher> packageMatchers = new ConcurrentHashMap<String, PackageMatcher>();
+
+  ClassNameMatcher(String... regexs) {
+	this.regexs = regexs.clone();
+	this.patterns = new Pattern[regexs.length];
+	List<String> combinableRegexs = new ArrayList<String>();
+	for (int i = 0; i < regexs.length; i++) {
+	  // compiling each regex reports syntax errors against the faulty regex
+	  patterns[i] = Pattern.compile(regexs[i]);
+	  String regex = regexs[i];
+	  boolean prefix = regex.endsWith(ANY_SUFFIX) && !isEscaped(regex, regex.length() - ANY_SUFFIX.length());
+	  String literal = literalOf(prefix ? regex.substring(0, regex.length() - ANY_SUFFIX.length()) : regex);
+	  if (literal != null) {
+		literals.add(literal, prefix);
+	  } else if (canBeCombined(regex)) {
+		combinableRegexs.add(regex);
+	  } else {
+		combinedPatterns.add(patterns[i]);
+	  }
+	}
+	if (combinableRegexs.size() == 1) {
+	  combinedPatterns.add(0, Pattern.compile(combinableRegexs.get(0)));
+	} else if (!combinableRegexs.isEmpty()) {
+	  StringBuilder alternation = new StringBuilder();
+	  for (String regex : combinableRegexs) {
+		if (alternation.length() > 0) alternation.append('|');
+		alternation.append("(?:").append(regex).append(')');
+	  }
+	  combinedPatterns.add(0, Pattern.compile(alternation.toString()));
+	}
+  }
+
+  boolean matches(String className) {
+	int packageEnd = className.lastIndexOf('.');
+	String packagePrefix = packageEnd < 0 ? "" : className.substring(0, packageEnd + 1);
+	PackageMatcher packageMatcher = packageMatchers.get(packagePrefix);
+	if (packageMatcher == null) {
+	  packageMatcher = new PackageMatcher(packagePrefix);
+	  packageMatchers.put(packagePrefix, packageMatcher);
+	}
+	return packageMatcher.matches(className);
+  }
+
+  /**
+   * Returns the first regex fully matching the given class name, null if none does. Meant to explain a decision, it
+   * runs every regex.
+   */
+  String firstMatchingRegex(String className) {
+	for (int i = 0; i < patterns.length; i++) {
+	  if (patterns[i].matcher(className).matches()) return regexs[i];
+	}
+	return null;
+  }
+
+  /**
+   * Returns what the given regex matches if it only matches itself (letters, digits, '_' and escaped '.' or '$'),
+   * null otherwise.
+   */
+  private static String literalOf(String regex) {
+	StringBuilder literal = new StringBuilder(regex.length());
+	for (int i = 0; i < regex.length(); i++) {
+	  char c = regex.charAt(i);
+	  if (c == '\\' && i + 1 < regex.length() && (regex.charAt(i + 1) == '.' || regex.charAt(i + 1) == '$')) {
+		literal.append(regex.charAt(++i));
+	  } else if (Character.isLetterOrDigit(c) || c == '_') {
+		literal.append(c);
+	  } else {
+		return null;
+	  }
+	}
+	return literal.toString();
+  }
+
+  /**
+   * Back references and named groups would refer to other groups or clash once regexs are combined.
+   */
+  private static boolean canBeCombined(String regex) {
+	for (int i = 0; i < regex.length(); i++) {
+	  char c = regex.charAt(i);
+	  if (c == '\\' && i + 1 < regex.length()) {
+		char escaped = regex.charAt(++i);
+		if (escaped == 'k' || (escaped >= '1' && escaped <= '9')) return false;
+	  } else if (c == '(' && regex.startsWith("(?<", i) && !regex.startsWith("(?<=", i)
+		         && !regex.startsWith("(?<!", i)) {
+		return false;
+	  }
+	}
+	return true;
+  }
+
+  private static boolean isEscaped(String regex, int index) {
+	int backslashes = 0;
+	for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+	  backslashes++;
+	}
+	return backslashes % 2 == 1;
+  }
+
+  /**
+   * What is left to check for the classes of a package.
+   */
+  private class PackageMatcher {
+	private final boolean matchesAllClasses;
+	private final boolean literalsMayMatch;
+	private final List<Pattern> candidatePatterns = new ArrayList<Pattern>();
+
+	PackageMatcher(String packagePrefix) {
+	  matchesAllClasses = literals.hasPrefixOf(packagePrefix);
+	  literalsMayMatch = literals.hasEntryStartingWith(packagePrefix);
+	  if (matchesAllClasses) return;
+	  for (Pattern pattern : combinedPatterns) {
+		Matcher matcher = pattern.matcher(packagePrefix);
+		// no need for more input to fail: the pattern can't match a class name starting with the package prefix
+		boolean mayMatchLongerInput = matcher.matches() || matcher.hitEnd();
+		if (mayMatchLongerInput) candidatePatterns.add(pattern);
+	  }
+	}
+
+	boolean matches(String className) {
+	  if (matchesAllClasses) return true;
+	  if (literalsMayMatch && literals.matches(className)) return true;
+	  for (Pattern pattern : candidatePatterns) {
+		if (pattern.matcher(className).matches()) return true;
+	  }
+	  return false;
+	}
+  }
+
+  /**
+   * A tree of literal class names and prefixes.
+   */
+  private static class PrefixTree {
+	private final Node root = new Node();
+
+	void add(String literal, boolean prefix) {
+	  Node node = root;
+	  for (int i = 0; i < literal.length(); i++) {
+		Node child = node.children.get(literal.charAt(i));
+		if (child == null) {
+		  child = new Node();
+		  node.children.put(literal.charAt(i), child);
+		}
+		node = child;
+	  }
+	  if (prefix) node.prefixEnd = true;
+	  else node.literalEnd = true;
+	}
+
+	/**
+	 * Returns true if a prefix of the tree is a prefix of the given string (any longer string thus matches).
+	 */
+	boolean hasPrefixOf(String string) {
+	  Node node = root;
+	  for (int i = 0; node != null; i++) {
+		if (node.prefixEnd) return true;
+		if (i == string.length()) return false;
+		node = node.children.get(string.charAt(i));
+	  }
+	  return false;
+	}
+
+	/**
+	 * Returns true if a literal or a prefix of the tree starts with the given string.
+	 */
+	boolean hasEntryStartingWith(String string) {
+	  Node node = root;
+	  for (int i = 0; node != null && i < string.length(); i++) {
+		node = node.children.get(string.charAt(i));
+	  }
+	  return node != null;
+	}
+
+	boolean matches(String string) {
+	  Node node = root;
+	  for (int i = 0; node != null; i++) {
+		if (node.prefixEnd) return true;
+		if (i == string.length()) return node.literalEnd;
+		node = node.children.get(string.charAt(i));
+	  }
+	  return false;
+	}
+
+	private static class Node {
+	  private final Map<Character, Node> children = new HashMap<Character, Node>(4);
+	  private boolean prefixEnd;
+	  private boolean literalEnd;
+	}
+  }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+
+/**
+ * On disk index of the classes of the jars of the classpath, so that unchanged jars (typically the dependencies from
+ * the local repository) are not opened again to find the classes of the generated packages.
+ * <p>
+ * A jar index lists the packages of the jar and, for the packages that have already been scanned, their classes that
+ * are candidates to assertions generation. It is keyed by the jar path and is only used while the jar size and last
+ * modification time are unchanged. The index is kept in the assertions cache directory and its files are evicted with
+ * the cache entries (see {@link AssertionsCache#evictLeastRecentlyUsedEntries()}), an evicted or corrupted index file
+ * just means scanning the jar again.
+ */
+class ClasspathIndex {
+
+  // version 1 indexes did not list nested classes
+  private static final int FORMAT_VERSION = 2;
+  private static final String INDEX_DIRECTORY_NAME = "classpath-index";
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+  private static final char CLASSES_SEPARATOR = ':';
+
+  private final File directory;
+
+  ClasspathIndex(File cacheDirectory) {
+	this.directory = new File(cacheDirectory, INDEX_DIRECTORY_NAME);
+  }
+
+  /**
+   * Returns the index of the given jar, null if the jar has not been indexed or has changed since.
+   */
+  JarIndex read(File jar) {
+	File indexFile = indexFileOf(jar);
+	if (!indexFile.isFile()) return null;
+	try {
+	  JarIndex jarIndex = read(indexFile, headerOf(jar));
+	  // records the access for the least recently used eviction
+	  if (jarIndex != null) indexFile.setLastModified(System.currentTimeMillis());
+	  return jarIndex;
+	} catch (IOException e) {
+	  // index evicted or being replaced by another build
+	  return null;
+	}
+  }
+
+  void write(File jar, JarIndex jarIndex) throws IOException {
+	File indexFile = indexFileOf(jar);
+	directory.mkdirs();
+	File temporaryFile = File.createTempFile(indexFile.getName(), TEMPORARY_FILE_SUFFIX, directory);
+	try {
+	  write(jarIndex, headerOf(jar), temporaryFile);
+	  if (!temporaryFile.renameTo(indexFile)) {
+		// another build has indexed the same jar in the meantime (or the platform does not replace files)
+		indexFile.delete();
+		temporaryFile.renameTo(indexFile);
+	  }
+	} finally {
+	  temporaryFile.delete();
+	}
+  }
+
+  private File indexFileOf(File jar) {
+	return new File(directory, Hashing.sha1().hashString(jar.getAbsolutePath(), UTF_8).toString());
+  }
+
+  private static String headerOf(File jar) {
+	return FORMAT_VERSION + " " + jar.length() + " " + jar.lastModified() + " " + jar.getAbsolutePath();
+  }
+
+  private static JarIndex read(File indexFile, String expectedHeader) throws IOException {
+	BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), UTF_8));
+	try {
+	  if (!expectedHeader.equals(reader.readLine())) return null;
+	  JarIndex jarIndex = new JarIndex();
+	  for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+		int separatorIndex = line.indexOf(CLASSES_SEPARATOR);
+		if (separatorIndex == -1) {
+		  jarIndex.addPackage(line);
+		  continue;
+		}
+		String packagePath = line.substring(0, separatorIndex);
+		jarIndex.addPackage(packagePath);
+		jarIndex.markScanned(packagePath);
+		String classSimpleNames = line.substring(separatorIndex + 1);
+		for (String classSimpleName : Splitter.on(',').omitEmptyStrings().split(classSimpleNames)) {
+		  jarIndex.addClass(packagePath, classSimpleName);
+		}
+	  }
+	  return jarIndex;
+	} finally {
+	  reader.close();
+	}
+  }
+
+  private static void write(JarIndex jarIndex, String header, File file) throws IOException {
+	Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8));
+	try {
+	  writer.write(header);
+	  writer.write('\n');
+	  for (Entry<String, Set<String>> packageClasses : jarIndex.classSimpleNamesByPackage.entrySet()) {
+		writer.write(packageClasses.getKey());
+		if (packageClasses.getValue() != null) {
+		  writer.write(CLASSES_SEPARATOR);
+		  writer.write(Joiner.on(',').join(packageClasses.getValue()));
+		}
+		writer.write('\n');
+	  }
+	} finally {
+	  writer.close();
+	}
+  }
+
+  /**
+   * The packages of a jar (as paths) with the simple names of the candidate classes of the scanned ones.
+   */
+  static class JarIndex {
+	// null classes for packages not scanned yet
+	private final Map<String, Set<String>> classSimpleNamesByPackage = new TreeMap<String, Set<String>>();
+
+	void addPackage(String packagePath) {
+	  if (!classSimpleNamesByPackage.containsKey(packagePath)) classSimpleNamesByPackage.put(packagePath, null);
+	}
+
+	void markScanned(String packagePath) {
+	  if (classSimpleNamesByPackage.get(packagePath) == null) {
+		classSimpleNamesByPackage.put(packagePath, new TreeSet<String>());
+	  }
+	}
+
+	void addClass(String packagePath, String classSimpleName) {
+	  markScanned(packagePath);
+	  classSimpleNamesByPackage.get(packagePath).add(classSimpleName);
+	}
+
+	void addScannedPackagesOf(JarIndex other) {
+	  for (Entry<String, Set<String>> packageClasses : other.classSimpleNamesByPackage.entrySet()) {
+		if (packageClasses.getValue() == null) continue;
+		addPackage(packageClasses.getKey());
+		markScanned(packageClasses.getKey());
+		classSimpleNamesByPackage.get(packageClasses.getKey()).addAll(packageClasses.getValue());
+	  }
+	}
+
+	boolean isScanned(String packagePath) {
+	  return classSimpleNamesByPackage.get(packagePath) != null;
+	}
+
+	/**
+	 * Returns true if the packages of the jar in the given packages or their subpackages have all been scanned.
+	 */
+	boolean isScanned(List<String> packagePaths) {
+	  for (Entry<String, Set<String>> packageClasses : classSimpleNamesByPackage.entrySet()) {
+		if (packageClasses.getValue() == null && isInPackages(packageClasses.getKey(), packagePaths)) return false;
+	  }
+	  return true;
+	}
+
+	/**
+	 * Marks the packages of the jar in the given packages or their subpackages as scanned.
+	 */
+	void markScanned(List<String> packagePaths) {
+	  for (String packagePath : classSimpleNamesByPackage.keySet()) {
+		if (isInPackages(packagePath, packagePaths)) markScanned(packagePath);
+	  }
+	}
+
+	/**
+	 * Returns the names of the indexed classes in the given packages and their subpackages, sorted.
+	 */
+	Set<String> classNamesIn(List<String> packagePaths) {
+	  Set<String> classNames = new TreeSet<String>();
+	  for (Entry<String, Set<String>> packageClasses : classSimpleNamesByPackage.entrySet()) {
+		if (packageClasses.getValue() == null || !isInPackages(packageClasses.getKey(), packagePaths)) continue;
+		String packageName = packageClasses.getKey().replace('/', '.');
+		for (String classSimpleName : packageClasses.getValue()) {
+		  classNames.add(packageName + "." + classSimpleName);
+		}
+	  }
+	  return classNames;
+	}
+
+	private static boolean isInPackages(String packagePath, List<String> packagePaths) {
+	  for (String requestedPackagePath : packagePaths) {
+		if (packagePath.equals(requestedPackagePath)) return true;
+		boolean subpackage = packagePath.startsWith(requestedPackagePath)
+		                     && packagePath.charAt(requestedPackagePath.length()) == '/';
+		if (subpackage) return true;
+	  }
+	  return false;
+	}
+  }
+
+}
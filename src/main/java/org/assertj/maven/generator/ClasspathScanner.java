@@ -0,0 +1,398 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.collect.Sets.newTreeSet;
+import static org.apache.commons.lang3.StringUtils.countMatches;
+import static org.apache.commons.lang3.StringUtils.substringBetween;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.assertj.maven.generator.ClasspathIndex.JarIndex;
+
+/**
+ * Finds the classes of given packages (and their subpackages) by reading class files from the directories and jars of
+ * a class loader classpath, without loading any class.
+ * <p>
+ * Only classes, top level or nested, that are candidates to assertions generation (see
+ * {@link ClassFileHeader#isCandidateToAssertionsGeneration()}) are returned. Classpath roots are scanned in the class
+ * loader order and class names are sorted within each root, so that the result does not depend on the file system
+ * or the jar entries order.
+ * <p>
+ * With several threads, the roots are scanned concurrently and the directories are split in subtrees scanned as
+ * separate tasks, the classes found are merged back per root in the roots order, the result is thus the same as with
+ * a sequential scan.
+ */
+class ClasspathScanner {
+
+  private static final String CLASS_FILE_EXTENSION = ".class";
+  // how deep below the scanned packages directories are split in tasks
+  private static final int DIRECTORY_SPLIT_DEPTH = 2;
+  private static final FileFilter DIRECTORIES = new FileFilter() {
+	@Override
+	public boolean accept(File file) {
+	  return file.isDirectory();
+	}
+  };
+  private final ClassLoader classLoader;
+  private final ClasspathIndex classpathIndex;
+  private final Set<File> scanRoots;
+  private final TaskRunner taskRunner;
+
+  ClasspathScanner(ClassLoader classLoader) {
+	this(classLoader, null, null);
+  }
+
+  /**
+   * Creates a scanner taking the classes of unchanged jars from the given index (null to always scan jars) and only
+   * scanning the given classpath roots (null to scan the whole class loader classpath).
+   */
+  ClasspathScanner(ClassLoader classLoader, ClasspathIndex classpathIndex, Set<File> scanRoots) {
+	this(classLoader, classpathIndex, scanRoots, new TaskRunner(1));
+  }
+
+  /**
+   * Creates a scanner like {@link #ClasspathScanner(ClassLoader, ClasspathIndex, Set)} running the scan of the
+   * classpath roots with the given task runner.
+   */
+  ClasspathScanner(ClassLoader classLoader, ClasspathIndex classpathIndex, Set<File> scanRoots,
+	               TaskRunner taskRunner) {
+	this.classLoader = classLoader;
+	this.classpathIndex = classpathIndex;
+	this.scanRoots = scanRoots;
+	this.taskRunner = taskRunner;
+  }
+
+  /**
+   * Returns the binary names of the classes found in the given packages and their subpackages.
+   */
+  Set<String> findClassNamesInPackages(String... packageNames) throws IOException {
+	Set<String> classNames = new LinkedHashSet<String>();
+	List<String> packagePaths = packagePathsOf(packageNames);
+	if (packagePaths.isEmpty()) return classNames;
+	Set<File> roots = scanRoots == null ? classpathRootsFor(packagePaths) : scanRoots;
+	if (taskRunner.getThreads() <= 1) {
+	  for (File root : roots) {
+		classNames.addAll(findClassNamesIn(root, packagePaths));
+	  }
+	  return classNames;
+	}
+	List<Callable<Set<String>>> tasks = new ArrayList<Callable<Set<String>>>();
+	List<Integer> taskCountsPerRoot = new ArrayList<Integer>(roots.size());
+	for (File root : roots) {
+	  int rootFirstTask = tasks.size();
+	  addScanTasks(root, packagePaths, tasks);
+	  taskCountsPerRoot.add(tasks.size() - rootFirstTask);
+	}
+	Iterator<Set<String>> taskClassNames = runAll(tasks).iterator();
+	for (int rootTaskCount : taskCountsPerRoot) {
+	  // sorted within the root like a sequential scan
+	  Set<String> rootClassNames = newTreeSet();
+	  for (int i = 0; i < rootTaskCount; i++) {
+		rootClassNames.addAll(taskClassNames.next());
+	  }
+	  classNames.addAll(rootClassNames);
+	}
+	return classNames;
+  }
+
+  private List<Set<String>> runAll(List<Callable<Set<String>>> tasks) throws IOException {
+	try {
+	  return taskRunner.runAll(tasks);
+	} catch (IOException e) {
+	  throw e;
+	} catch (RuntimeException e) {
+	  throw e;
+	} catch (Exception e) {
+	  // scan tasks only throw IOException
+	  throw new IOException(e);
+	}
+  }
+
+  /**
+   * Adds the tasks scanning the given root: a single task for a jar, a task per subtree of the packages directories
+   * (down to {@value #DIRECTORY_SPLIT_DEPTH} levels) for a directory so that large packages are scanned by several
+   * threads.
+   */
+  private void addScanTasks(final File root, final List<String> packagePaths, List<Callable<Set<String>>> tasks) {
+	if (!root.isDirectory()) {
+	  tasks.add(new Callable<Set<String>>() {
+		@Override
+		public Set<String> call() throws IOException {
+		  return findClassNamesIn(root, packagePaths);
+		}
+	  });
+	  return;
+	}
+	for (String packagePath : packagePaths) {
+	  addDirectoryScanTasks(new File(root, packagePath), packagePath, DIRECTORY_SPLIT_DEPTH, tasks);
+	}
+  }
+
+  private static void addDirectoryScanTasks(File directory, String directoryPath, int splitDepth,
+	                                        List<Callable<Set<String>>> tasks) {
+	if (splitDepth == 0) {
+	  tasks.add(new DirectoryScan(directory, directoryPath, true));
+	  return;
+	}
+	File[] subdirectories = directory.listFiles(DIRECTORIES);
+	if (subdirectories == null) return;
+	tasks.add(new DirectoryScan(directory, directoryPath, false));
+	for (File subdirectory : subdirectories) {
+	  addDirectoryScanTasks(subdirectory, directoryPath + "/" + subdirectory.getName(), splitDepth - 1, tasks);
+	}
+  }
+
+  private static List<String> packagePathsOf(String... packageNames) {
+	List<String> packagePaths = new ArrayList<String>();
+	for (String packageName : packageNames) {
+	  if (packageName != null && packageName.length() > 0) packagePaths.add(packageName.replace('.', '/'));
+	}
+	return packagePaths;
+  }
+
+  /**
+   * Returns the directories and jars of the class loader classpath, url class loaders urls first (parents first), then
+   * the roots of the package resources that other kinds of class loaders give.
+   */
+  Set<File> classpathRootsFor(List<String> packagePaths) throws IOException {
+	Set<File> roots = new LinkedHashSet<File>();
+	collectUrlClassLoaderRoots(classLoader, roots);
+	for (String packagePath : packagePaths) {
+	  Enumeration<URL> packageResources = classLoader.getResources(packagePath);
+	  while (packageResources.hasMoreElements()) {
+		File root = rootOf(packageResources.nextElement(), packagePath);
+		if (root != null) roots.add(root);
+	  }
+	}
+	return roots;
+  }
+
+  private static void collectUrlClassLoaderRoots(ClassLoader loader, Set<File> roots) {
+	if (loader == null) return;
+	collectUrlClassLoaderRoots(loader.getParent(), roots);
+	if (!(loader instanceof URLClassLoader)) return;
+	for (URL url : ((URLClassLoader) loader).getURLs()) {
+	  File root = fileOf(url);
+	  if (root != null && root.exists()) roots.add(root);
+	}
+  }
+
+  private static File rootOf(URL packageResource, String packagePath) {
+	if ("jar".equals(packageResource.getProtocol())) {
+	  String jarUrl = substringBetween(packageResource.toString(), "jar:", "!/");
+	  try {
+		return jarUrl == null ? null : fileOf(new URL(jarUrl));
+	  } catch (IOException e) {
+		return null;
+	  }
+	}
+	File root = fileOf(packageResource);
+	for (int i = 0; root != null && i <= countMatches(packagePath, "/"); i++) {
+	  root = root.getParentFile();
+	}
+	return root;
+  }
+
+  static File fileOf(URL url) {
+	if (!"file".equals(url.getProtocol())) return null;
+	try {
+	  return new File(url.toURI());
+	} catch (URISyntaxException e) {
+	  return new File(url.getPath());
+	} catch (IllegalArgumentException e) {
+	  return new File(url.getPath());
+	}
+  }
+
+  Set<String> findClassNamesIn(File root, List<String> packagePaths) throws IOException {
+	Set<String> classNames = newTreeSet();
+	if (root.isDirectory()) {
+	  for (String packagePath : packagePaths) {
+		findClassNamesInDirectory(new File(root, packagePath), packagePath, true, classNames);
+	  }
+	} else if (root.isFile()) {
+	  if (classpathIndex == null) findClassNamesInJar(root, packagePaths, classNames);
+	  else findClassNamesInIndexedJar(root, packagePaths, classNames);
+	}
+	return classNames;
+  }
+
+  private static void findClassNamesInDirectory(File directory, String directoryPath, boolean recursive,
+	                                            Set<String> classNames) throws IOException {
+	File[] files = directory.listFiles();
+	if (files == null) return;
+	Arrays.sort(files);
+	for (File file : files) {
+	  String path = directoryPath + "/" + file.getName();
+	  if (file.isDirectory()) {
+		if (recursive) findClassNamesInDirectory(file, path, true, classNames);
+	  } else if (isClassFile(path)) {
+		InputStream classFile = new BufferedInputStream(new FileInputStream(file));
+		try {
+		  addIfCandidate(path, classFile, classNames);
+		} finally {
+		  classFile.close();
+		}
+	  }
+	}
+  }
+
+  private static void findClassNamesInJar(File jar, List<String> packagePaths, Set<String> classNames)
+	  throws IOException {
+	ZipFile zipFile;
+	try {
+	  zipFile = new ZipFile(jar);
+	} catch (IOException e) {
+	  // not a jar, nothing to scan
+	  return;
+	}
+	try {
+	  Enumeration<? extends ZipEntry> entries = zipFile.entries();
+	  while (entries.hasMoreElements()) {
+		ZipEntry entry = entries.nextElement();
+		String path = entry.getName();
+		if (!entry.isDirectory() && isClassFile(path) && isInPackages(path, packagePaths)) {
+		  InputStream classFile = new BufferedInputStream(zipFile.getInputStream(entry));
+		  try {
+			addIfCandidate(path, classFile, classNames);
+		  } finally {
+			classFile.close();
+		  }
+		}
+	  }
+	} finally {
+	  zipFile.close();
+	}
+  }
+
+  private void findClassNamesInIndexedJar(File jar, List<String> packagePaths, Set<String> classNames)
+	  throws IOException {
+	JarIndex jarIndex = classpathIndex.read(jar);
+	if (jarIndex == null || !jarIndex.isScanned(packagePaths)) {
+	  jarIndex = index(jar, jarIndex, packagePaths);
+	  if (jarIndex == null) return;
+	  try {
+		classpathIndex.write(jar, jarIndex);
+	  } catch (IOException e) {
+		// the jar will just be scanned again next time
+	  }
+	}
+	classNames.addAll(jarIndex.classNamesIn(packagePaths));
+  }
+
+  /**
+   * Indexes the packages of the given jar and scans the ones in the given packages that the previous index of the jar
+   * (if any) has not scanned yet.
+   */
+  private static JarIndex index(File jar, JarIndex previousJarIndex, List<String> packagePaths) throws IOException {
+	ZipFile zipFile;
+	try {
+	  zipFile = new ZipFile(jar);
+	} catch (IOException e) {
+	  // not a jar, nothing to scan
+	  return null;
+	}
+	try {
+	  JarIndex jarIndex = new JarIndex();
+	  if (previousJarIndex != null) jarIndex.addScannedPackagesOf(previousJarIndex);
+	  Enumeration<? extends ZipEntry> entries = zipFile.entries();
+	  while (entries.hasMoreElements()) {
+		ZipEntry entry = entries.nextElement();
+		String path = entry.getName();
+		if (entry.isDirectory() || !isClassFile(path)) continue;
+		int lastSlash = path.lastIndexOf('/');
+		String packagePath = lastSlash == -1 ? "" : path.substring(0, lastSlash);
+		jarIndex.addPackage(packagePath);
+		boolean alreadyScanned = previousJarIndex != null && previousJarIndex.isScanned(packagePath);
+		if (alreadyScanned || !isInPackages(path, packagePaths)) continue;
+		InputStream classFile = new BufferedInputStream(zipFile.getInputStream(entry));
+		try {
+		  if (ClassFileHeader.read(classFile).isCandidateToAssertionsGeneration()) {
+			String classSimpleName = path.substring(lastSlash + 1, path.length() - CLASS_FILE_EXTENSION.length());
+			jarIndex.addClass(packagePath, classSimpleName);
+		  }
+		} finally {
+		  classFile.close();
+		}
+	  }
+	  jarIndex.markScanned(packagePaths);
+	  return jarIndex;
+	} finally {
+	  zipFile.close();
+	}
+  }
+
+  private static boolean isInPackages(String path, List<String> packagePaths) {
+	for (String packagePath : packagePaths) {
+	  if (path.startsWith(packagePath) && path.length() > packagePath.length()
+		  && path.charAt(packagePath.length()) == '/') return true;
+	}
+	return false;
+  }
+
+  private static boolean isClassFile(String path) {
+	return path.endsWith(CLASS_FILE_EXTENSION);
+  }
+
+  private static void addIfCandidate(String path, InputStream classFile, Set<String> classNames) throws IOException {
+	if (ClassFileHeader.read(classFile).isCandidateToAssertionsGeneration()) {
+	  classNames.add(classNameOf(path));
+	}
+  }
+
+  static String classNameOf(String classFilePath) {
+	return classFilePath.substring(0, classFilePath.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+  }
+
+  /**
+   * Scans the class files of a directory, and of its subdirectories if recursive.
+   */
+  private static class DirectoryScan implements Callable<Set<String>> {
+	private final File directory;
+	private final String directoryPath;
+	private final boolean recursive;
+
+	DirectoryScan(File directory, String directoryPath, boolean recursive) {
+	  this.directory = directory;
+	  this.directoryPath = directoryPath;
+	  this.recursive = recursive;
+	}
+
+	@Override
+	public Set<String> call() throws IOException {
+	  Set<String> classNames = newTreeSet();
+	  findClassNamesInDirectory(directory, directoryPath, recursive, classNames);
+	  return classNames;
+	}
+  }
+
+}
@@ -0,0 +1,24 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+/**
+ * How the entry point classes are split: a single set of entry points for all the classes, or a set of entry points per
+ * package (or group of packages) generated in that package, so that javac compiles smaller entry points and only the
+ * entry points of the packages whose classes have changed are regenerated.
+ */
+public enum EntryPointSharding {
+
+  NONE, PACKAGE;
+
+}
@@ -0,0 +1,255 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.collect.Sets.newTreeSet;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.split;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.assertj.assertions.generator.AssertionsEntryPointType;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Records what a generation run has produced in the directory where assertions are generated: the fingerprint of each
+ * input class with the files generated for it, the entry point files, the plugin and generator fingerprints and the
+ * generator configuration.
+ * <p>
+ * The next run uses it to only regenerate assertions for classes whose fingerprint has changed and to remove
+ * assertions files of classes that are not part of the input anymore.
+ */
+class GenerationManifest {
+
+  static final String MANIFEST_FILE_NAME = ".assertj-assertions-generator.manifest";
+  private static final String PLUGIN_VERSION = "version.plugin";
+  private static final String GENERATOR_VERSION = "version.generator";
+  private static final String CONFIGURATION = "configuration";
+  private static final String CLASS_PREFIX = "class.";
+  private static final String FILES_PREFIX = "files.";
+  private static final String ENTRY_POINT_PREFIX = "entryPoint.";
+  private static final String ENTRY_POINT_SHARD_PREFIX = "entryPointShard.";
+  private static final String FILES_SEPARATOR = ",";
+
+  private final File baseDirectory;
+  private final Properties properties;
+
+  private GenerationManifest(File baseDirectory, Properties properties) {
+	this.baseDirectory = baseDirectory.getAbsoluteFile();
+	this.properties = properties;
+  }
+
+  /**
+   * Creates an empty manifest for the given generator configuration.
+   */
+  static GenerationManifest newManifest(String baseDirectory, String configuration) {
+	GenerationManifest manifest = new GenerationManifest(new File(baseDirectory), new Properties());
+	manifest.properties.setProperty(PLUGIN_VERSION, ArtifactVersions.PLUGIN_FINGERPRINT);
+	manifest.properties.setProperty(GENERATOR_VERSION, ArtifactVersions.GENERATOR_FINGERPRINT);
+	manifest.properties.setProperty(CONFIGURATION, configuration);
+	return manifest;
+  }
+
+  /**
+   * Reads the manifest left by the previous run in given directory, returns an empty manifest if there is none.
+   */
+  static GenerationManifest readFrom(String baseDirectory) throws IOException {
+	Properties properties = new Properties();
+	File manifestFile = new File(baseDirectory, MANIFEST_FILE_NAME);
+	if (manifestFile.isFile()) {
+	  InputStream input = new FileInputStream(manifestFile);
+	  try {
+		properties.load(input);
+	  } finally {
+		input.close();
+	  }
+	}
+	return new GenerationManifest(new File(baseDirectory), properties);
+  }
+
+  void writeTo(String baseDirectory) throws IOException {
+	File directory = new File(baseDirectory);
+	directory.mkdirs();
+	OutputStream output = new FileOutputStream(new File(directory, MANIFEST_FILE_NAME));
+	try {
+	  properties.store(output, "AssertJ assertions generator manifest - do not edit");
+	} finally {
+	  output.close();
+	}
+  }
+
+  /**
+   * Returns true if the given manifest was produced by the same plugin and generator builds with the same
+   * configuration, that is if its generated files can be reused.
+   */
+  boolean isCompatibleWith(GenerationManifest other) {
+	return sameProperty(other, PLUGIN_VERSION) && sameProperty(other, GENERATOR_VERSION)
+	       && sameProperty(other, CONFIGURATION);
+  }
+
+  private boolean sameProperty(GenerationManifest other, String key) {
+	String value = properties.getProperty(key);
+	return value != null && value.equals(other.properties.getProperty(key));
+  }
+
+  void recordClass(String className, String fingerprint) {
+	properties.setProperty(CLASS_PREFIX + className, fingerprint);
+  }
+
+  void recordGeneratedFiles(String className, File... generatedFiles) {
+	List<String> relativePaths = new ArrayList<String>(generatedFiles.length);
+	for (File generatedFile : generatedFiles) {
+	  relativePaths.add(relativePathOf(generatedFile));
+	}
+	properties.setProperty(FILES_PREFIX + className, join(relativePaths, FILES_SEPARATOR));
+  }
+
+  /**
+   * Records the entry point file of the given type and shard, null when entry points are not sharded.
+   */
+  void recordEntryPoint(AssertionsEntryPointType type, String shard, File entryPointFile) {
+	if (entryPointFile != null) properties.setProperty(entryPointKeyOf(type, shard), relativePathOf(entryPointFile));
+  }
+
+  /**
+   * Records the classes of an entry points shard, by a fingerprint of their names and of their recorded fingerprints
+   * (entry points depend on the classes descriptions, like their type parameters).
+   */
+  void recordEntryPointShard(String shard, Set<String> classNames) {
+	Hasher hasher = Hashing.sha1().newHasher();
+	for (String className : classNames) {
+	  String classFingerprint = nullToEmpty(properties.getProperty(CLASS_PREFIX + className));
+	  hasher.putString(className, UTF_8).putString(classFingerprint, UTF_8);
+	}
+	properties.setProperty(ENTRY_POINT_SHARD_PREFIX + shard, hasher.hash().toString());
+  }
+
+  /**
+   * Returns true if the given class has been generated with the same fingerprint and its generated files still exist.
+   */
+  boolean isUpToDate(String className, String fingerprint) {
+	return fingerprint.equals(properties.getProperty(CLASS_PREFIX + className))
+	       && allExist(generatedFilesOf(className));
+  }
+
+  /**
+   * Returns true if the entry point files of the given types and shard (null when entry points are not sharded) have
+   * been generated for the same classes, with the same fingerprints, as the given manifest and still exist.
+   */
+  boolean hasUpToDateEntryPointsFor(Set<AssertionsEntryPointType> types, String shard, GenerationManifest current) {
+	boolean sameClasses = shard == null ? classFingerprints().equals(current.classFingerprints())
+	    : sameProperty(current, ENTRY_POINT_SHARD_PREFIX + shard);
+	if (!sameClasses) return false;
+	for (AssertionsEntryPointType type : types) {
+	  File entryPointFile = entryPointFileOf(type, shard);
+	  if (entryPointFile == null || !entryPointFile.exists()) return false;
+	}
+	return true;
+  }
+
+  File[] generatedFilesOf(String className) {
+	String relativePaths = properties.getProperty(FILES_PREFIX + className);
+	if (isEmpty(relativePaths)) return new File[0];
+	String[] paths = split(relativePaths, FILES_SEPARATOR);
+	File[] files = new File[paths.length];
+	for (int i = 0; i < paths.length; i++) {
+	  files[i] = new File(baseDirectory, paths[i]);
+	}
+	return files;
+  }
+
+  File entryPointFileOf(AssertionsEntryPointType type, String shard) {
+	String relativePath = properties.getProperty(entryPointKeyOf(type, shard));
+	return relativePath == null ? null : new File(baseDirectory, relativePath);
+  }
+
+  /**
+   * Returns the entry point files recorded in this manifest that are not recorded in the given one (entry points types
+   * no longer generated, shards of packages without classes anymore).
+   */
+  Set<File> entryPointFilesNotIn(GenerationManifest other) {
+	Set<String> otherRelativePaths = other.entryPointRelativePaths();
+	Set<File> entryPointFiles = newTreeSet();
+	for (String relativePath : entryPointRelativePaths()) {
+	  if (!otherRelativePaths.contains(relativePath)) entryPointFiles.add(new File(baseDirectory, relativePath));
+	}
+	return entryPointFiles;
+  }
+
+  private Set<String> entryPointRelativePaths() {
+	Set<String> relativePaths = newTreeSet();
+	for (String key : properties.stringPropertyNames()) {
+	  if (key.startsWith(ENTRY_POINT_PREFIX)) relativePaths.add(properties.getProperty(key));
+	}
+	return relativePaths;
+  }
+
+  private static String entryPointKeyOf(AssertionsEntryPointType type, String shard) {
+	return ENTRY_POINT_PREFIX + type.name() + (shard == null ? "" : "." + shard);
+  }
+
+  /**
+   * Returns the names of the classes recorded in this manifest that are not recorded in the given one.
+   */
+  Set<String> classesNotIn(GenerationManifest other) {
+	Set<String> classNames = classNames();
+	classNames.removeAll(other.classNames());
+	return classNames;
+  }
+
+  private Map<String, String> classFingerprints() {
+	Map<String, String> classFingerprints = new TreeMap<String, String>();
+	for (String key : properties.stringPropertyNames()) {
+	  if (!key.startsWith(CLASS_PREFIX)) continue;
+	  classFingerprints.put(key.substring(CLASS_PREFIX.length()), properties.getProperty(key));
+	}
+	return classFingerprints;
+  }
+
+  Set<String> classNames() {
+	Set<String> classNames = newTreeSet();
+	for (String key : properties.stringPropertyNames()) {
+	  if (key.startsWith(CLASS_PREFIX)) classNames.add(key.substring(CLASS_PREFIX.length()));
+	}
+	return classNames;
+  }
+
+  private String relativePathOf(File file) {
+	return baseDirectory.toURI().relativize(file.getAbsoluteFile().toURI()).getPath();
+  }
+
+  private static boolean allExist(File[] files) {
+	if (files.length == 0) return false;
+	for (File file : files) {
+	  if (!file.exists()) return false;
+	}
+	return true;
+  }
+
+}
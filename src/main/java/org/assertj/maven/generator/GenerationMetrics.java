@@ -0,0 +1,194 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.io.Files;
+
+/**
+ * Wall time, CPU time and allocated bytes spent in each phase of the assertions generation.
+ * <p>
+ * CPU time and allocated bytes come from the thread MXBean of the thread running the phase, they are not measured
+ * if the JVM does not support it. Phases run by several threads (like the conversion and rendering of classes) are
+ * measured on each thread and summed, their wall time can thus be greater than the elapsed time.
+ * <p>
+ * This class is thread safe.
+ */
+public class GenerationMetrics {
+
+  public enum Phase {
+	CLASSLOADER("classpath and class loader construction"),
+	CLASS_COLLECTION("class collection"),
+	FILTERING("class filtering"),
+	UP_TO_DATE_CHECK("up to date check"),
+	CACHE("assertions cache lookups and stores"),
+	CONVERSION("description conversion"),
+	RENDERING("rendering"),
+	FILE_WRITING("file writing"),
+	ENTRY_POINTS("entry points generation");
+
+	private final String description;
+
+	private Phase(String description) {
+	  this.description = description;
+	}
+
+	public String getDescription() {
+	  return description;
+	}
+  }
+
+  private static final long NOT_MEASURED = -1;
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = allocationMXBean();
+
+  private final AtomicLongArray wallTimes = new AtomicLongArray(Phase.values().length);
+  private final AtomicLongArray cpuTimes = new AtomicLongArray(Phase.values().length);
+  private final AtomicLongArray allocatedBytes = new AtomicLongArray(Phase.values().length);
+
+  /**
+   * Returns a checkpoint of the current thread to measure what it does from now on.
+   */
+  public Checkpoint start() {
+	return new Checkpoint(System.nanoTime(), currentThreadCpuTime(), currentThreadAllocatedBytes());
+  }
+
+  /**
+   * Adds what the current thread has done since the given checkpoint to the given phase.
+   *
+   * @return a new checkpoint to measure the next phase.
+   */
+  public Checkpoint record(Phase phase, Checkpoint since) {
+	Checkpoint now = start();
+	wallTimes.addAndGet(phase.ordinal(), now.wallTime - since.wallTime);
+	if (since.cpuTime != NOT_MEASURED) cpuTimes.addAndGet(phase.ordinal(), now.cpuTime - since.cpuTime);
+	if (since.allocatedBytes != NOT_MEASURED) {
+	  allocatedBytes.addAndGet(phase.ordinal(), now.allocatedBytes - since.allocatedBytes);
+	}
+	return now;
+  }
+
+  public long getWallTimeNanos(Phase phase) {
+	return wallTimes.get(phase.ordinal());
+  }
+
+  public long getCpuTimeNanos(Phase phase) {
+	return cpuTimes.get(phase.ordinal());
+  }
+
+  public long getAllocatedBytes(Phase phase) {
+	return allocatedBytes.get(phase.ordinal());
+  }
+
+  public static boolean isCpuTimeMeasured() {
+	return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+  }
+
+  public static boolean isAllocationMeasured() {
+	return ALLOCATION_MX_BEAN != null && ALLOCATION_MX_BEAN.isThreadAllocatedMemorySupported()
+	       && ALLOCATION_MX_BEAN.isThreadAllocatedMemoryEnabled();
+  }
+
+  /**
+   * Returns a human readable line per measured phase.
+   */
+  public String getSummary() {
+	StringBuilder summary = new StringBuilder();
+	for (Phase phase : Phase.values()) {
+	  if (getWallTimeNanos(phase) == 0) continue;
+	  summary.append("- ").append(phase.getDescription()).append(" : ")
+	         .append(millisOf(getWallTimeNanos(phase))).append(" ms");
+	  if (isCpuTimeMeasured()) summary.append(", cpu ").append(millisOf(getCpuTimeNanos(phase))).append(" ms");
+	  if (isAllocationMeasured()) {
+		double allocatedMegaBytes = getAllocatedBytes(phase) / (1024.0 * 1024.0);
+		summary.append(", ").append(format("%.1f", allocatedMegaBytes)).append(" MB allocated");
+	  }
+	  summary.append("\n");
+	}
+	return summary.toString();
+  }
+
+  /**
+   * Writes the metrics in the given file as JSON, times are in milliseconds.
+   */
+  public void writeJsonTo(File file) throws IOException {
+	StringBuilder json = new StringBuilder("{\n");
+	json.append("  \"cpuTimeMeasured\": ").append(isCpuTimeMeasured()).append(",\n");
+	json.append("  \"allocationMeasured\": ").append(isAllocationMeasured()).append(",\n");
+	json.append("  \"phases\": {");
+	String separator = "\n";
+	for (Phase phase : Phase.values()) {
+	  json.append(separator).append("    \"").append(phase.name()).append("\": {")
+	      .append("\"wallTimeMillis\": ").append(millisOf(getWallTimeNanos(phase)))
+	      .append(", \"cpuTimeMillis\": ").append(millisOf(getCpuTimeNanos(phase)))
+	      .append(", \"allocatedBytes\": ").append(getAllocatedBytes(phase)).append("}");
+	  separator = ",\n";
+	}
+	json.append("\n  }\n}\n");
+	file.getAbsoluteFile().getParentFile().mkdirs();
+	Files.write(json, file, Charset.forName("UTF-8"));
+  }
+
+  private static String millisOf(long nanos) {
+	return format("%.3f", nanos / (double) MILLISECONDS.toNanos(1));
+  }
+
+  private static String format(String format, double value) {
+	// JSON needs a dot as decimal separator
+	return String.format(Locale.ROOT, format, value);
+  }
+
+  private static long currentThreadCpuTime() {
+	return isCpuTimeMeasured() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : NOT_MEASURED;
+  }
+
+  private static long currentThreadAllocatedBytes() {
+	return isAllocationMeasured() ? ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+	    : NOT_MEASURED;
+  }
+
+  private static com.sun.management.ThreadMXBean allocationMXBean() {
+	try {
+	  // only HotSpot based JVMs measure allocations
+	  boolean hotSpotThreadMXBean = THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean;
+	  return hotSpotThreadMXBean ? (com.sun.management.ThreadMXBean) THREAD_MX_BEAN : null;
+	} catch (LinkageError e) {
+	  return null;
+	}
+  }
+
+  /**
+   * The wall time, CPU time and allocated bytes of a thread at some point.
+   */
+  public static final class Checkpoint {
+	private final long wallTime;
+	private final long cpuTime;
+	private final long allocatedBytes;
+
+	private Checkpoint(long wallTime, long cpuTime, long allocatedBytes) {
+	  this.wallTime = wallTime;
+	  this.cpuTime = cpuTime;
+	  this.allocatedBytes = allocatedBytes;
+	}
+  }
+
+}
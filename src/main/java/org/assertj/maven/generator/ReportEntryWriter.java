@@ -0,0 +1,78 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Streams report entries to a file as they are produced, one entry per line: a JSON object with <code>type</code>
+ * and <code>value</code> fields in {@link ReportFormat#JSONL JSONL} format, a <code>type,value</code> record in
+ * {@link ReportFormat#CSV CSV} format.
+ */
+class ReportEntryWriter implements Closeable {
+
+  private final Writer writer;
+  private final ReportFormat format;
+
+  ReportEntryWriter(File file, ReportFormat format) throws IOException {
+	this.format = format;
+	file.getAbsoluteFile().getParentFile().mkdirs();
+	this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")));
+	if (format == ReportFormat.CSV) writer.write("type,value\n");
+  }
+
+  void write(String type, Object value) throws IOException {
+	String valueString = String.valueOf(value);
+	if (format == ReportFormat.CSV) {
+	  writer.append(csvField(type)).append(',').append(csvField(valueString)).append('\n');
+	} else {
+	  writer.append("{\"type\":\"").append(jsonString(type)).append("\",\"value\":");
+	  if (value instanceof Number) writer.append(valueString);
+	  else writer.append('"').append(jsonString(valueString)).append('"');
+	  writer.append("}\n");
+	}
+  }
+
+  @Override
+  public void close() throws IOException {
+	writer.close();
+  }
+
+  private static String csvField(String field) {
+	boolean needsQuotes = field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0
+	                      || field.indexOf('\r') >= 0;
+	return needsQuotes ? '"' + field.replace("\"", "\"\"") + '"' : field;
+  }
+
+  private static String jsonString(String string) {
+	StringBuilder json = new StringBuilder(string.length());
+	for (int i = 0; i < string.length(); i++) {
+	  char c = string.charAt(i);
+	  if (c == '"' || c == '\\') json.append('\\').append(c);
+	  else if (c == '\n') json.append("\\n");
+	  else if (c == '\r') json.append("\\r");
+	  else if (c == '\t') json.append("\\t");
+	  else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+	  else json.append(c);
+	}
+	return json.toString();
+  }
+
+}
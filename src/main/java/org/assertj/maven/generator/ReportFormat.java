@@ -0,0 +1,37 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+/**
+ * Where the generation report entries go: only in the console, or streamed to a JSON Lines or CSV file as they are
+ * produced with a bounded summary in the console.
+ */
+public enum ReportFormat {
+
+  CONSOLE(null), JSONL("jsonl"), CSV("csv");
+
+  private final String fileExtension;
+
+  private ReportFormat(String fileExtension) {
+	this.fileExtension = fileExtension;
+  }
+
+  public String getFileExtension() {
+	return fileExtension;
+  }
+
+  public boolean isStreamed() {
+	return fileExtension != null;
+  }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.io.IOException;
+
+/**
+ * Where generated source files are written, by default the directory where assertions are generated.
+ * <p>
+ * A destination is only used by the writer thread of a generation, see
+ * {@link AssertionsGenerator#setSourceFileDestination(SourceFileDestination)}.
+ */
+public interface SourceFileDestination {
+
+  /**
+   * Writes the given content, encoded with the platform encoding, as the source file of the given name in the given
+   * package.
+   *
+   * @return false if the file already had this content and was thus left untouched.
+   */
+  boolean write(String packageName, String fileName, byte[] content) throws IOException;
+
+  /**
+   * Called once all the files are written, or once writing a file has failed.
+   */
+  void close(boolean allFilesWritten) throws IOException;
+
+}
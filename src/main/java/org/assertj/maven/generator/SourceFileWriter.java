@@ -0,0 +1,370 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.FILE_WRITING;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.assertj.maven.generator.GenerationMetrics.Checkpoint;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Writes generated source files under a base directory, following their package, by default only if their content
+ * differs from the existing file: unchanged files keep their timestamp so that incremental compilers and IDEs don't
+ * recompile them.
+ * <p>
+ * Files are written by a dedicated thread so that rendering goes on while files are written: {@link #write(String,
+ * String, String)} queues the file and returns at once, unless {@value #MAX_PENDING_FILES} files are already waiting
+ * to be written. A file is written to a temporary file in its directory then renamed, so that an interrupted build
+ * never leaves a truncated source file. Platforms that don't rename over an existing file (Windows) get a weaker
+ * guarantee: the existing file is moved aside until the new one is in place, an interrupted build may then leave the
+ * previous file under a <code>.old</code> name instead of the new one. {@link #close()} waits for the queued files to
+ * be written and reports the first write failure.
+ * <p>
+ * A writer created with {@link #toArchive(String, File, Charset, GenerationMetrics)} streams the files in a zip
+ * archive instead, and one created with another {@link SourceFileDestination} hands them over to it, the returned files are
+ * then the files the sources would have been written to.
+ * <p>
+ * Files are written with the platform encoding like the assertions generator does, archives with the encoding they
+ * are created with. This class is thread safe.
+ */
+class SourceFileWriter implements Closeable {
+
+  private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;",
+	                                                                 Pattern.MULTILINE);
+  private static final HashFunction HASH_FUNCTION = Hashing.sha1();
+  private static final int MAX_PENDING_FILES = 256;
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+  private static final String PREVIOUS_FILE_SUFFIX = ".old";
+  private static final int RENAME_ATTEMPTS = 3;
+  private static final long RENAME_RETRY_DELAY_MILLIS = 10;
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+  private static final PendingFile END_OF_FILES = new PendingFile(null, null, null);
+
+  private final File baseDirectory;
+  private final Charset charset;
+  private final GenerationMetrics metrics;
+  private final AtomicInteger writtenFilesCount = new AtomicInteger();
+  private final AtomicInteger unchangedFilesCount = new AtomicInteger();
+  private final BlockingQueue<PendingFile> pendingFiles = new ArrayBlockingQueue<PendingFile>(MAX_PENDING_FILES);
+  private final SourceFileDestination destination;
+  private final Thread writerThread;
+  private volatile IOException writeFailure;
+  private volatile boolean aborted;
+  private boolean closed;
+
+  SourceFileWriter(String baseDirectory, GenerationMetrics metrics) {
+	this(baseDirectory, true, metrics);
+  }
+
+  /**
+   * Creates a writer writing the files under the given base directory, files already having the written content are
+   * only left unchanged if changedFilesOnly is true.
+   */
+  SourceFileWriter(String baseDirectory, boolean changedFilesOnly, GenerationMetrics metrics) {
+	this(baseDirectory, new DirectoryDestination(new File(baseDirectory), changedFilesOnly), metrics);
+  }
+
+  /**
+   * Creates a writer streaming the files in the given zip archive with the given encoding, their entries following the
+   * package of the files. The archive is replaced once the writer is closed, unless writing a file failed.
+   */
+  static SourceFileWriter toArchive(String baseDirectory, File archive, Charset charset, GenerationMetrics metrics)
+	  throws IOException {
+	return new SourceFileWriter(baseDirectory, new ArchiveDestination(archive), charset, metrics);
+  }
+
+  /**
+   * Creates a writer handing the files over to the given destination, from its writer thread.
+   */
+  SourceFileWriter(String baseDirectory, SourceFileDestination destination, GenerationMetrics metrics) {
+	this(baseDirectory, destination, Charset.defaultCharset(), metrics);
+  }
+
+  private SourceFileWriter(String baseDirectory, SourceFileDestination destination, Charset charset,
+	                       GenerationMetrics metrics) {
+	this.baseDirectory = new File(baseDirectory);
+	this.destination = destination;
+	this.charset = charset;
+	this.metrics = metrics;
+	this.writerThread = new Thread(new Runnable() {
+	  @Override
+	  public void run() {
+		writePendingFiles();
+	  }
+	}, "assertj-generator-writer-" + THREAD_COUNT.incrementAndGet());
+	writerThread.setDaemon(true);
+	writerThread.start();
+  }
+
+  /**
+   * Queues the given content to be written in the file of the given name in the directory of the given package, unless
+   * the file already has this content.
+   *
+   * @return the file corresponding to the given package and file name.
+   * @throws IOException if a previously queued file could not be written.
+   */
+  File write(String packageName, String fileName, String content) throws IOException {
+	if (writeFailure != null) throw writeFailure;
+	File file = new File(directoryOf(baseDirectory, packageName), fileName);
+	try {
+	  pendingFiles.put(new PendingFile(packageName, fileName, content));
+	} catch (InterruptedException e) {
+	  Thread.currentThread().interrupt();
+	  throw new InterruptedIOException("Interrupted while queuing " + file);
+	}
+	return file;
+  }
+
+  /**
+   * Queues the given Java source file content to be written in the directory of the package it declares.
+   */
+  File write(String fileName, String javaSourceContent) throws IOException {
+	return write(declaredPackageOf(javaSourceContent), fileName, javaSourceContent);
+  }
+
+  /**
+   * Waits for the queued files to be written.
+   *
+   * @throws IOException the first write failure, if any.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+	if (!closed) {
+	  closed = true;
+	  try {
+		pendingFiles.put(END_OF_FILES);
+		writerThread.join();
+	  } catch (InterruptedException e) {
+		writerThread.interrupt();
+		Thread.currentThread().interrupt();
+		throw new InterruptedIOException("Interrupted while waiting for generated files to be written");
+	  }
+	}
+	if (writeFailure != null) throw writeFailure;
+  }
+
+  /**
+   * Discards the queued files and closes the destination as if writing a file had failed (an archive is then not
+   * replaced), for generations that have failed. Nothing is reported since the generation failure is.
+   */
+  void abort() {
+	aborted = true;
+	try {
+	  close();
+	} catch (IOException e) {
+	  // the generation failure is reported instead
+	}
+  }
+
+  private void writePendingFiles() {
+	try {
+	  PendingFile pendingFile = pendingFiles.take();
+	  while (pendingFile != END_OF_FILES) {
+		// keeps taking files after a failure so that renderers are never blocked
+		if (writeFailure == null && !aborted) write(pendingFile);
+		pendingFile = pendingFiles.take();
+	  }
+	} catch (InterruptedException e) {
+	  if (writeFailure == null) writeFailure = new InterruptedIOException("Interrupted while writing generated files");
+	} finally {
+	  try {
+		destination.close(writeFailure == null && !aborted);
+	  } catch (IOException e) {
+		if (writeFailure == null) writeFailure = e;
+	  }
+	}
+  }
+
+  private void write(PendingFile pendingFile) {
+	Checkpoint checkpoint = metrics.start();
+	try {
+	  byte[] bytes = pendingFile.content.getBytes(charset);
+	  if (destination.write(pendingFile.packageName, pendingFile.fileName, bytes)) {
+		writtenFilesCount.incrementAndGet();
+	  } else {
+		unchangedFilesCount.incrementAndGet();
+	  }
+	} catch (IOException e) {
+	  writeFailure = e;
+	} catch (RuntimeException e) {
+	  writeFailure = new IOException("Could not write " + pendingFile.fileName, e);
+	}
+	metrics.record(FILE_WRITING, checkpoint);
+  }
+
+  private static void replace(File file, File temporaryFile) throws IOException {
+	if (renameWithRetries(temporaryFile, file)) return;
+	// some platforms (Windows) don't rename over existing files, the existing file is kept aside until the new one is
+	// in place so that it can be restored
+	File previousFile = new File(file.getPath() + PREVIOUS_FILE_SUFFIX);
+	previousFile.delete();
+	if (file.renameTo(previousFile)) {
+	  if (temporaryFile.renameTo(file)) {
+		previousFile.delete();
+		return;
+	  }
+	  previousFile.renameTo(file);
+	}
+	temporaryFile.delete();
+	throw new IOException("Could not move " + temporaryFile + " to " + file);
+  }
+
+  /**
+   * Renames the given file, retrying a few times since the destination may be briefly locked by another process
+   * (virus scanners, indexers) on some platforms.
+   */
+  private static boolean renameWithRetries(File file, File destination) {
+	for (int attempt = 1; attempt < RENAME_ATTEMPTS; attempt++) {
+	  if (file.renameTo(destination)) return true;
+	  try {
+		Thread.sleep(RENAME_RETRY_DELAY_MILLIS * attempt);
+	  } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		break;
+	  }
+	}
+	return file.renameTo(destination);
+  }
+
+  private static File directoryOf(File baseDirectory, String packageName) {
+	return isEmpty(packageName) ? baseDirectory : new File(baseDirectory, packageName.replace('.', File.separatorChar));
+  }
+
+  static String declaredPackageOf(String javaSourceContent) {
+	Matcher packageDeclaration = PACKAGE_DECLARATION.matcher(javaSourceContent);
+	return packageDeclaration.find() ? packageDeclaration.group(1) : "";
+  }
+
+  /**
+   * Returns the number of written files, only final once {@link #close() closed}.
+   */
+  int getWrittenFilesCount() {
+	return writtenFilesCount.get();
+  }
+
+  /**
+   * Returns the number of files left unchanged, only final once {@link #close() closed}.
+   */
+  int getUnchangedFilesCount() {
+	return unchangedFilesCount.get();
+  }
+
+  private static class DirectoryDestination implements SourceFileDestination {
+	private final File baseDirectory;
+	private final boolean changedFilesOnly;
+	private final Set<File> existingDirectories = new HashSet<File>();
+
+	DirectoryDestination(File baseDirectory, boolean changedFilesOnly) {
+	  this.baseDirectory = baseDirectory;
+	  this.changedFilesOnly = changedFilesOnly;
+	}
+
+	@Override
+	public boolean write(String packageName, String fileName, byte[] bytes) throws IOException {
+	  File directory = directoryOf(baseDirectory, packageName);
+	  File file = new File(directory, fileName);
+	  if (changedFilesOnly && hasContent(file, bytes)) return false;
+	  // files mostly come package after package, directories are thus created once
+	  if (existingDirectories.add(directory)) directory.mkdirs();
+	  File temporaryFile = new File(directory, file.getName() + TEMPORARY_FILE_SUFFIX);
+	  FileChannel channel = new FileOutputStream(temporaryFile).getChannel();
+	  try {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+		  channel.write(buffer);
+		}
+	  } finally {
+		channel.close();
+	  }
+	  replace(file, temporaryFile);
+	  return true;
+	}
+
+	private static boolean hasContent(File file, byte[] bytes) throws IOException {
+	  // comparing lengths first avoids reading files that obviously differ
+	  return file.isFile() && file.length() == bytes.length
+		     && Files.hash(file, HASH_FUNCTION).equals(HASH_FUNCTION.hashBytes(bytes));
+	}
+
+	@Override
+	public void close(boolean allFilesWritten) {}
+  }
+
+  private static class ArchiveDestination implements SourceFileDestination {
+	private final File archive;
+	private final File temporaryArchive;
+	private final ZipOutputStream zipOutput;
+
+	ArchiveDestination(File archive) throws IOException {
+	  this.archive = archive;
+	  archive.getAbsoluteFile().getParentFile().mkdirs();
+	  this.temporaryArchive = new File(archive.getPath() + TEMPORARY_FILE_SUFFIX);
+	  this.zipOutput = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryArchive)));
+	}
+
+	@Override
+	public boolean write(String packageName, String fileName, byte[] bytes) throws IOException {
+	  String entryName = isEmpty(packageName) ? fileName : packageName.replace('.', '/') + "/" + fileName;
+	  zipOutput.putNextEntry(new ZipEntry(entryName));
+	  zipOutput.write(bytes);
+	  zipOutput.closeEntry();
+	  return true;
+	}
+
+	@Override
+	public void close(boolean allFilesWritten) throws IOException {
+	  try {
+		zipOutput.close();
+		if (allFilesWritten) replace(archive, temporaryArchive);
+	  } finally {
+		temporaryArchive.delete();
+	  }
+	}
+  }
+
+  private static class PendingFile {
+	private final String packageName;
+	private final String fileName;
+	private final String content;
+
+	PendingFile(String packageName, String fileName, String content) {
+	  this.packageName = packageName;
+	  this.fileName = fileName;
+	  this.content = content;
+	}
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent tasks on a bounded number of threads and returns their results in the order the tasks were given,
+ * so that callers get the same results as with a sequential execution.
+ * <p>
+ * With one thread (or a single task) the tasks are simply run on the calling thread.
+ */
+class TaskRunner {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+  private final int threads;
+
+  TaskRunner(int threads) {
+	this.threads = threads;
+  }
+
+  int getThreads() {
+	return threads;
+  }
+
+  /**
+   * Runs all the given tasks and returns their results in the tasks order.
+   *
+   * @throws Exception the exception thrown by the first failing task (in tasks order), the remaining tasks are
+   *           cancelled.
+   */
+  <T> List<T> runAll(List<? extends Callable<T>> tasks) throws Exception {
+	List<T> results = new ArrayList<T>(tasks.size());
+	if (threads <= 1 || tasks.size() <= 1) {
+	  for (Callable<T> task : tasks) {
+		results.add(task.call());
+	  }
+	  return results;
+	}
+	ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()), new DaemonThreadFactory());
+	try {
+	  List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+	  for (Callable<T> task : tasks) {
+		futures.add(executor.submit(task));
+	  }
+	  for (Future<T> future : futures) {
+		results.add(resultOf(future));
+	  }
+	  return results;
+	} finally {
+	  executor.shutdownNow();
+	}
+  }
+
+  private static <T> T resultOf(Future<T> future) throws Exception {
+	try {
+	  return future.get();
+	} catch (ExecutionException e) {
+	  Throwable cause = e.getCause();
+	  if (cause instanceof Exception) throw (Exception) cause;
+	  if (cause instanceof Error) throw (Error) cause;
+	  throw e;
+	}
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+	@Override
+	public Thread newThread(Runnable runnable) {
+	  Thread thread = new Thread(runnable, "assertj-generator-" + THREAD_COUNT.incrementAndGet());
+	  thread.setDaemon(true);
+	  return thread;
+	}
+  }
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.util.regex.Pattern.DOTALL;
+import static java.util.regex.Pattern.MULTILINE;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.split;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.io.Files;
+
+/**
+ * Finds the classes the test sources use, to only generate assertions for them.
+ * <p>
+ * Test sources are not compiled, a class is considered used when a test source refers to it (or to its
+ * <code>Assert</code> or <code>AbstractAssert</code> class) by a name that resolves to it through the source imports,
+ * package or a fully qualified name. Only the names written in the sources are found: a class a test only gets
+ * through another one, as in <code>assertThat(order.getCustomer())</code>, is not found here and the caller has to
+ * keep the classes reachable from the used ones. An unused class getting assertions costs some compilation, a used
+ * class missing them breaks the test compilation.
+ * <p>
+ * The names and imports of each source are kept in an index file and only read again when the source size or last
+ * modification time has changed.
+ */
+class TestSourceUsages {
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String FORMAT_VERSION_KEY = "version";
+  private static final String JAVA_EXTENSION = "java";
+  private static final char FIELDS_SEPARATOR = '|';
+  private static final char LIST_SEPARATOR = ',';
+  private static final Pattern COMMENTS_AND_LITERALS = Pattern.compile("//[^\\n]*|/\\*.*?\\*/"
+                                                                       + "|\"(?:\\\\.|[^\"\\\\])*\""
+                                                                       + "|'(?:\\\\.|[^'\\\\])*'", DOTALL);
+  private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", MULTILINE);
+  private static final Pattern IMPORT = Pattern.compile("^\\s*import\\s+(static\\s+)?([\\w.]+?)(\\.\\*)?\\s*;",
+                                                        MULTILINE);
+  private static final Pattern NAME = Pattern.compile("[A-Za-z_$][\\w$]*(?:\\s*\\.\\s*[A-Za-z_$][\\w$]*)*");
+  private static final String ASSERT_SUFFIX = "Assert";
+  private static final String ABSTRACT_PREFIX = "Abstract";
+
+  private final Collection<File> sourceRoots;
+  private final File indexFile;
+
+  TestSourceUsages(Collection<File> sourceRoots, File indexFile) {
+	this.sourceRoots = sourceRoots;
+	this.indexFile = indexFile;
+  }
+
+  /**
+   * Returns the names of the given classes that the test sources use.
+   */
+  Set<String> usedClassNamesAmong(Set<String> classNames) throws IOException {
+	Properties previousIndex = readIndex();
+	Properties index = new Properties();
+	index.setProperty(FORMAT_VERSION_KEY, String.valueOf(FORMAT_VERSION));
+	Set<String> usedClassNames = new TreeSet<String>();
+	for (File source : sources()) {
+	  String key = source.getAbsolutePath();
+	  String fileStamp = source.length() + ":" + source.lastModified();
+	  SourceReferences references = SourceReferences.parse(previousIndex.getProperty(key), fileStamp);
+	  if (references == null) references = SourceReferences.read(source, fileStamp);
+	  index.setProperty(key, references.toIndexEntry());
+	  references.addClassesAmong(classNames, usedClassNames);
+	}
+	writeIndex(index);
+	return usedClassNames;
+  }
+
+  private List<File> sources() {
+	List<File> sources = new ArrayList<File>();
+	for (File sourceRoot : sourceRoots) {
+	  if (sourceRoot.isDirectory()) {
+		sources.addAll(FileUtils.listFiles(sourceRoot, new String[] { JAVA_EXTENSION }, true));
+	  }
+	}
+	return sources;
+  }
+
+  private Properties readIndex() {
+	Properties index = new Properties();
+	if (!indexFile.isFile()) return index;
+	try {
+	  InputStream input = new FileInputStream(indexFile);
+	  try {
+		index.load(input);
+	  } finally {
+		input.close();
+	  }
+	} catch (IOException e) {
+	  // a corrupted index just means reading the sources again
+	  return new Properties();
+	}
+	return String.valueOf(FORMAT_VERSION).equals(index.getProperty(FORMAT_VERSION_KEY)) ? index : new Properties();
+  }
+
+  private void writeIndex(Properties index) throws IOException {
+	indexFile.getAbsoluteFile().getParentFile().mkdirs();
+	OutputStream output = new FileOutputStream(indexFile);
+	try {
+	  index.store(output, "AssertJ assertions generator test sources index - do not edit");
+	} finally {
+	  output.close();
+	}
+  }
+
+  /**
+   * The package, imports and type names of a test source.
+   */
+  static class SourceReferences {
+	private final String fileStamp;
+	private final String packageName;
+	// fully qualified names of the imported classes and packages (ending with .*)
+	private final List<String> imports;
+	// names starting with an upper case letter, possibly qualified like Outer.Inner or com.acme.Type
+	private final Set<String> names;
+
+	private SourceReferences(String fileStamp, String packageName, List<String> imports, Set<String> names) {
+	  this.fileStamp = fileStamp;
+	  this.packageName = packageName;
+	  this.imports = imports;
+	  this.names = names;
+	}
+
+	static SourceReferences read(File source, String fileStamp) throws IOException {
+	  String content = COMMENTS_AND_LITERALS.matcher(Files.toString(source, UTF_8)).replaceAll(" ");
+	  Matcher packageMatcher = PACKAGE.matcher(content);
+	  String packageName = packageMatcher.find() ? packageMatcher.group(1) : "";
+	  List<String> imports = new ArrayList<String>();
+	  Matcher importMatcher = IMPORT.matcher(content);
+	  while (importMatcher.find()) {
+		String importedName = importMatcher.group(2);
+		boolean staticImport = importMatcher.group(1) != null;
+		boolean onDemand = importMatcher.group(3) != null;
+		// a static import refers to a member of the class, except on demand ones
+		if (staticImport && !onDemand) importedName = importedName.substring(0, importedName.lastIndexOf('.'));
+		imports.add(onDemand && !staticImport ? importedName + ".*" : importedName);
+	  }
+	  String body = IMPORT.matcher(PACKAGE.matcher(content).replaceAll(" ")).replaceAll(" ");
+	  Set<String> names = new TreeSet<String>();
+	  Matcher nameMatcher = NAME.matcher(body);
+	  while (nameMatcher.find()) {
+		String name = nameMatcher.group().replaceAll("\\s", "");
+		if (name.indexOf('.') != -1 || Character.isUpperCase(name.charAt(0))) names.add(name);
+	  }
+	  return new SourceReferences(fileStamp, packageName, imports, names);
+	}
+
+	/**
+	 * Parses an index entry, returns null if there is none or if it is not for the given file stamp.
+	 */
+	static SourceReferences parse(String indexEntry, String fileStamp) {
+	  if (indexEntry == null) return null;
+	  String[] fields = indexEntry.split("\\" + FIELDS_SEPARATOR, -1);
+	  if (fields.length != 4 || !fields[0].equals(fileStamp)) return null;
+	  List<String> imports = new ArrayList<String>();
+	  for (String importedName : split(fields[2], LIST_SEPARATOR)) {
+		imports.add(importedName);
+	  }
+	  Set<String> names = new TreeSet<String>();
+	  for (String name : split(fields[3], LIST_SEPARATOR)) {
+		names.add(name);
+	  }
+	  return new SourceReferences(fileStamp, fields[1], imports, names);
+	}
+
+	/**
+	 * Adds to usedClassNames the given classes that this source refers to.
+	 */
+	void addClassesAmong(Set<String> classNames, Set<String> usedClassNames) {
+	  Map<String, String> importedClassesBySimpleName = new HashMap<String, String>();
+	  List<String> packages = new ArrayList<String>();
+	  packages.add(packageName);
+	  for (String importedName : imports) {
+		if (importedName.endsWith(".*")) {
+		  packages.add(importedName.substring(0, importedName.length() - 2));
+		} else {
+		  addIfClass(importedName, classNames, usedClassNames);
+		  importedClassesBySimpleName.put(importedName.substring(importedName.lastIndexOf('.') + 1), importedName);
+		}
+	  }
+	  for (String name : names) {
+		String[] parts = split(name, '.');
+		int firstTypeIndex = 0;
+		while (firstTypeIndex < parts.length && !Character.isUpperCase(parts[firstTypeIndex].charAt(0))) {
+		  firstTypeIndex++;
+		}
+		if (firstTypeIndex == parts.length) continue;
+		List<String> candidates = new ArrayList<String>();
+		if (firstTypeIndex > 0) {
+		  candidates.add(join(parts, '.', 0, firstTypeIndex + 1));
+		} else {
+		  String importedClass = importedClassesBySimpleName.get(parts[0]);
+		  if (importedClass != null) candidates.add(importedClass);
+		  for (String packageOfName : packages) {
+			candidates.add(packageOfName.isEmpty() ? parts[0] : packageOfName + "." + parts[0]);
+		  }
+		}
+		for (String candidate : candidates) {
+		  addIfClass(candidate, classNames, usedClassNames);
+		  // nested classes
+		  for (int i = firstTypeIndex + 1; i < parts.length && Character.isUpperCase(parts[i].charAt(0)); i++) {
+			candidate += "$" + parts[i];
+			addIfClass(candidate, classNames, usedClassNames);
+		  }
+		}
+	  }
+	}
+
+	private static void addIfClass(String name, Set<String> classNames, Set<String> usedClassNames) {
+	  if (classNames.contains(name)) usedClassNames.add(name);
+	  // the class whose assertions are used
+	  if (!name.endsWith(ASSERT_SUFFIX)) return;
+	  int simpleNameStart = name.lastIndexOf('.') + 1;
+	  String packagePrefix = name.substring(0, simpleNameStart);
+	  String simpleName = name.substring(simpleNameStart, name.length() - ASSERT_SUFFIX.length());
+	  if (classNames.contains(packagePrefix + simpleName)) usedClassNames.add(packagePrefix + simpleName);
+	  if (simpleName.startsWith(ABSTRACT_PREFIX)) {
+		String abstractAssertClassName = packagePrefix + simpleName.substring(ABSTRACT_PREFIX.length());
+		if (classNames.contains(abstractAssertClassName)) usedClassNames.add(abstractAssertClassName);
+	  }
+	}
+
+	String toIndexEntry() {
+	  return fileStamp + FIELDS_SEPARATOR + packageName + FIELDS_SEPARATOR + join(imports, LIST_SEPARATOR)
+	         + FIELDS_SEPARATOR + join(names, LIST_SEPARATOR);
+	}
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The superclasses of the classes to generate that get their own assertions, computed once for all the classes of a
+ * hierarchical generation.
+ * <p>
+ * Hierarchical assertions of a class extend the abstract assertions of its nearest generated superclass, the generator
+ * finds it by looking up the superclasses in the set of classes it is given. Giving it the generated superclasses of
+ * the class instead of all the generated classes keeps these lookups independent of the number of generated classes,
+ * and the superclasses shared by many classes are only walked once.
+ * <p>
+ * This class is immutable once built and can be used by several threads.
+ */
+class TypeHierarchyIndex {
+
+  private final Set<Class<?>> classes;
+  // nearest first, includes the superclasses of the classes that are not generated
+  private final Map<Class<?>, Set<Class<?>>> generatedSuperclasses = new HashMap<Class<?>, Set<Class<?>>>();
+
+  TypeHierarchyIndex(Set<Class<?>> classes) {
+	this.classes = classes;
+	for (Class<?> clazz : classes) {
+	  index(clazz);
+	}
+  }
+
+  /**
+   * Returns the classes to generate.
+   */
+  Set<Class<?>> getClasses() {
+	return classes;
+  }
+
+  /**
+   * Returns the superclasses of the given class to generate that are generated too, the nearest first.
+   */
+  Set<Class<?>> generatedSuperclassesOf(Class<?> clazz) {
+	return generatedSuperclasses.get(clazz);
+  }
+
+  private Set<Class<?>> index(Class<?> clazz) {
+	Set<Class<?>> superclasses = generatedSuperclasses.get(clazz);
+	if (superclasses != null) return superclasses;
+	Class<?> superclass = clazz.getSuperclass();
+	if (superclass == null) {
+	  superclasses = emptySet();
+	} else if (classes.contains(superclass)) {
+	  Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+	  hierarchy.add(superclass);
+	  hierarchy.addAll(index(superclass));
+	  superclasses = unmodifiableSet(hierarchy);
+	} else {
+	  // shared with the superclass as it adds nothing to it
+	  superclasses = index(superclass);
+	}
+	generatedSuperclasses.put(clazz, superclasses);
+	return superclasses;
+  }
+
+}
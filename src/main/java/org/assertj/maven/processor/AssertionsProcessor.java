@@ -0,0 +1,230 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.processor;
+
+import static java.lang.String.format;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.split;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.BDD;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.JUNIT_SOFT;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.SOFT;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.STANDARD;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.assertj.assertions.generator.AssertionsEntryPointType;
+import org.assertj.maven.generator.AssertionsGenerator;
+import org.assertj.maven.generator.AssertionsGeneratorReport;
+import org.assertj.maven.generator.SourceFileDestination;
+
+/**
+ * Generates assertions while javac compiles the test sources, the generated assertions being compiled with them.
+ * <p>
+ * The processor takes the same configuration as the <code>generate-assertions</code> goal, through javac options:
+ * <code>-Aassertj.packages</code> and <code>-Aassertj.classes</code> (comma separated),
+ * <code>-Aassertj.includes</code> and <code>-Aassertj.excludes</code> (comma separated regexes),
+ * <code>-Aassertj.hierarchical</code>, <code>-Aassertj.entryPointClassPackage</code> and
+ * <code>-Aassertj.generate.Assertions/BddAssertions/SoftAssertions/JUnitSoftAssertions</code>. It does nothing if
+ * neither packages nor classes are given.
+ * <p>
+ * The processor is not registered as a service, it has to be given explicitly to javac, for example with
+ * <code>-processor org.assertj.maven.processor.AssertionsProcessor</code> or the <code>annotationProcessors</code>
+ * parameter of the maven-compiler-plugin.
+ * <p>
+ * It only generates assertions for classes compiled before the javac run: classes are found by scanning bytecode and
+ * loaded with the class loader of the processor, the elements of the sources being compiled are not used. It is meant
+ * to generate the assertions of main classes while compiling test sources; the classes to generate assertions for that
+ * are compiled by the same javac run are reported with a warning, their assertions are generated from their previous
+ * class files if there are any. No separate class loader is built and no other class of the packages is loaded.
+ * Generated sources go through the javac {@link Filer}, so that javac compiles them and incremental compilers know
+ * about them.
+ * <p>
+ * javac builds the class loader of the processor from the compilation classpath when no processor path is given, which
+ * is the expected setup: the plugin is then added as a test dependency, bringing its runtime dependencies
+ * (assertj-assertions-generator with Guava, commons-lang3 and commons-io, commons-collections and maven-plugin-api).
+ * With a processor path (<code>-processorpath</code> or <code>annotationProcessorPaths</code>), these dependencies and
+ * the classes to generate assertions for must all be on the processor path.
+ */
+@SupportedAnnotationTypes("*")
+@SupportedOptions({ AssertionsProcessor.PACKAGES, AssertionsProcessor.CLASSES, AssertionsProcessor.INCLUDES,
+	AssertionsProcessor.EXCLUDES, AssertionsProcessor.HIERARCHICAL, AssertionsProcessor.ENTRY_POINT_CLASS_PACKAGE,
+	AssertionsProcessor.GENERATE_ASSERTIONS, AssertionsProcessor.GENERATE_BDD_ASSERTIONS,
+	AssertionsProcessor.GENERATE_SOFT_ASSERTIONS, AssertionsProcessor.GENERATE_JUNIT_SOFT_ASSERTIONS })
+public class AssertionsProcessor extends AbstractProcessor {
+
+  static final String PACKAGES = "assertj.packages";
+  static final String CLASSES = "assertj.classes";
+  static final String INCLUDES = "assertj.includes";
+  static final String EXCLUDES = "assertj.excludes";
+  static final String HIERARCHICAL = "assertj.hierarchical";
+  static final String ENTRY_POINT_CLASS_PACKAGE = "assertj.entryPointClassPackage";
+  static final String GENERATE_ASSERTIONS = "assertj.generate.Assertions";
+  static final String GENERATE_BDD_ASSERTIONS = "assertj.generate.BddAssertions";
+  static final String GENERATE_SOFT_ASSERTIONS = "assertj.generate.SoftAssertions";
+  static final String GENERATE_JUNIT_SOFT_ASSERTIONS = "assertj.generate.JUnitSoftAssertions";
+  private static final String JUNIT_NOT_FOUND = "JUnit not found in compilation classpath => JUnitSoftAssertions entry"
+	                                            + " point class won't be generated.";
+  private static final String CLASSES_COMPILED_BY_THIS_RUN = "Assertions are only generated for classes compiled"
+	                                                          + " before this javac run, those of %s are generated from"
+	                                                          + " their previous class files if any.";
+  // only used to report the generated files
+  private static final String REPORTED_TARGET_DIRECTORY = "generated-assertions";
+
+  private boolean generated;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+	return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+	// generating in the first round lets javac compile the generated sources in the next one
+	if (generated || roundEnvironment.processingOver()) return false;
+	generated = true;
+	String[] packages = listOption(PACKAGES);
+	String[] classes = listOption(CLASSES);
+	if (packages.length == 0 && classes.length == 0) return false;
+	warnAboutClassesCompiledByThisRun(roundEnvironment, packages, classes);
+	try {
+	  ClassLoader classLoader = AssertionsProcessor.class.getClassLoader();
+	  AssertionsGenerator generator = new AssertionsGenerator(classLoader);
+	  generator.setIncludePatterns(listOption(INCLUDES));
+	  generator.setExcludePatterns(listOption(EXCLUDES));
+	  generator.setScanBytecode(true);
+	  generator.setWriteChangedFilesOnly(true);
+	  generator.setSourceFileDestination(new FilerDestination(processingEnv.getFiler()));
+	  generator.setLog(new SystemStreamLog());
+	  enableEntryPoint(GENERATE_ASSERTIONS, STANDARD, generator);
+	  enableEntryPoint(GENERATE_BDD_ASSERTIONS, BDD, generator);
+	  enableEntryPoint(GENERATE_SOFT_ASSERTIONS, SOFT, generator);
+	  if (isEnabled(GENERATE_JUNIT_SOFT_ASSERTIONS)) {
+		// the generated JUnitSoftAssertions would not compile without JUnit
+		if (junitFoundBy(classLoader)) generator.enableEntryPointClassesGenerationFor(JUNIT_SOFT);
+		else processingEnv.getMessager().printMessage(NOTE, JUNIT_NOT_FOUND);
+	  }
+	  AssertionsGeneratorReport report = generator.generateAssertionsFor(packages, classes, REPORTED_TARGET_DIRECTORY,
+		                                                                 option(ENTRY_POINT_CLASS_PACKAGE),
+		                                                                 Boolean.parseBoolean(option(HIERARCHICAL)));
+	  if (report.getReportedException() != null) {
+		processingEnv.getMessager().printMessage(ERROR, "Assertions generation failed : "
+		                                                + report.getReportedException());
+	  } else {
+		processingEnv.getMessager().printMessage(NOTE, report.getReportContent());
+	  }
+	} catch (IOException e) {
+	  processingEnv.getMessager().printMessage(ERROR, "Assertions generation failed : " + e);
+	}
+	return false;
+  }
+
+  /**
+   * Warns that the given classes compiled by this javac run are not generated from their sources.
+   */
+  private void warnAboutClassesCompiledByThisRun(RoundEnvironment roundEnvironment, String[] packages,
+	                                             String[] classes) {
+	List<String> compiledClasses = new ArrayList<String>();
+	for (Element rootElement : roundEnvironment.getRootElements()) {
+	  if (!(rootElement instanceof TypeElement)) continue;
+	  String className = ((TypeElement) rootElement).getQualifiedName().toString();
+	  if (isGenerationInput(className, packages, classes)) compiledClasses.add(className);
+	}
+	if (compiledClasses.isEmpty()) return;
+	processingEnv.getMessager().printMessage(WARNING, format(CLASSES_COMPILED_BY_THIS_RUN, compiledClasses));
+  }
+
+  private static boolean isGenerationInput(String className, String[] packages, String[] classes) {
+	if (ArrayUtils.contains(classes, className)) return true;
+	for (String packageName : packages) {
+	  if (className.startsWith(packageName + ".")) return true;
+	}
+	return false;
+  }
+
+  private void enableEntryPoint(String option, AssertionsEntryPointType type, AssertionsGenerator generator) {
+	if (isEnabled(option)) generator.enableEntryPointClassesGenerationFor(type);
+  }
+
+  /**
+   * Returns true if the given entry point option is true or not set, entry points are generated by default.
+   */
+  private boolean isEnabled(String entryPointOption) {
+	String enabled = option(entryPointOption);
+	return isBlank(enabled) || Boolean.parseBoolean(enabled);
+  }
+
+  private static boolean junitFoundBy(ClassLoader classLoader) {
+	try {
+	  Class.forName("org.junit.Rule", false, classLoader);
+	  return true;
+	} catch (ClassNotFoundException e) {
+	  return false;
+	}
+  }
+
+  private String option(String name) {
+	return processingEnv.getOptions().get(name);
+  }
+
+  private String[] listOption(String name) {
+	String value = option(name);
+	return isBlank(value) ? new String[0] : split(value.replaceAll("\\s", ""), ',');
+  }
+
+  /**
+   * Creates the generated sources with the javac {@link Filer}.
+   */
+  private static class FilerDestination implements SourceFileDestination {
+	private static final String JAVA_FILE_EXTENSION = ".java";
+	private final Filer filer;
+
+	FilerDestination(Filer filer) {
+	  this.filer = filer;
+	}
+
+	@Override
+	public boolean write(String packageName, String fileName, byte[] content) throws IOException {
+	  String simpleName = fileName.substring(0, fileName.length() - JAVA_FILE_EXTENSION.length());
+	  String qualifiedName = isBlank(packageName) ? simpleName : packageName + "." + simpleName;
+	  OutputStream source = filer.createSourceFile(qualifiedName).openOutputStream();
+	  try {
+		source.write(content);
+	  } finally {
+		source.close();
+	  }
+	  return true;
+	}
+
+	@Override
+	public void close(boolean allFilesWritten) {}
+  }
+
+}
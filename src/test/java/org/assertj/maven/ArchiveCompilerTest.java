@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveCompilerTest {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File archive;
+  private File classes;
+
+  @Before
+  public void setUp() throws Exception {
+    archive = new File(temporaryFolder.getRoot(), "assertions.jar");
+    classes = temporaryFolder.newFolder("test-classes");
+  }
+
+  @Test
+  public void should_compile_the_archive_sources_only_once_while_the_archive_is_unchanged() throws Exception {
+    writeArchive("p/A.java", "package p; public class A {}", "p/B.java", "package p; public class B {}");
+
+    assertThat(compiler(UTF_8).compile(archive, classes)).isEqualTo(2);
+    assertThat(new File(classes, "p/A.class")).isFile();
+    assertThat(new File(classes, "p/B.class")).isFile();
+    assertThat(compiler(UTF_8).compile(archive, classes)).isZero();
+  }
+
+  @Test
+  public void should_compile_again_when_a_class_file_was_deleted() throws Exception {
+    writeArchive("p/A.java", "package p; public class A {}");
+    compiler(UTF_8).compile(archive, classes);
+    new File(classes, "p/A.class").delete();
+
+    assertThat(compiler(UTF_8).compile(archive, classes)).isEqualTo(1);
+    assertThat(new File(classes, "p/A.class")).isFile();
+  }
+
+  @Test
+  public void should_delete_the_classes_of_sources_removed_from_the_archive() throws Exception {
+    writeArchive("p/A.java", "package p; public class A { class Inner {} }", "p/B.java", "package p; public class B {}");
+    compiler(UTF_8).compile(archive, classes);
+    assertThat(new File(classes, "p/A$Inner.class")).isFile();
+
+    writeArchive("p/B.java", "package p; public class B {}");
+
+    assertThat(compiler(UTF_8).compile(archive, classes)).isEqualTo(1);
+    assertThat(new File(classes, "p/A.class")).doesNotExist();
+    assertThat(new File(classes, "p/A$Inner.class")).doesNotExist();
+    assertThat(new File(classes, "p/B.class")).isFile();
+  }
+
+  @Test
+  public void should_read_the_sources_with_the_given_encoding() throws Exception {
+    writeArchive("p/A.java", "package p; public class A { public static final String NAME = \"caf\u00e9\"; }");
+
+    compiler(UTF_8).compile(archive, classes);
+
+    URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, null);
+    assertThat(classLoader.loadClass("p.A").getField("NAME").get(null)).isEqualTo("caf\u00e9");
+  }
+
+  private static ArchiveCompiler compiler(Charset charset) {
+    return new ArchiveCompiler(new ArrayList<String>(), new ArrayList<String>(), charset);
+  }
+
+  private void writeArchive(String... pathsAndSources) throws IOException {
+    ZipOutputStream output = new ZipOutputStream(new FileOutputStream(archive));
+    try {
+      for (int i = 0; i < pathsAndSources.length; i += 2) {
+        output.putNextEntry(new ZipEntry(pathsAndSources[i]));
+        output.write(pathsAndSources[i + 1].getBytes(UTF_8));
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+  }
+
+}
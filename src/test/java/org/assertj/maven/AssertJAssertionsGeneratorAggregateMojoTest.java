@@ -0,0 +1,143 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.assertj.core.util.Lists.newArrayList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssertJAssertionsGeneratorAggregateMojoTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_generate_the_assertions_of_each_module_in_its_target_directory() throws Exception {
+    MavenProject employeeModule = module("employee", "org.assertj.maven.test.Employee");
+    MavenProject addressModule = module("address", "org.assertj.maven.test2.adress.Address");
+    MavenProject parent = mock(MavenProject.class);
+    when(parent.getBuildPlugins()).thenReturn(Collections.emptyList());
+    AssertJAssertionsGeneratorAggregateMojo aggregateMojo = new AssertJAssertionsGeneratorAggregateMojo();
+    aggregateMojo.reactorProjects = newArrayList(parent, employeeModule, addressModule);
+    aggregateMojo.moduleThreads = 2;
+
+    aggregateMojo.execute();
+
+    File employeeTargetDir = targetDirOf("employee");
+    File addressTargetDir = targetDirOf("address");
+    assertThat(new File(employeeTargetDir, "org/assertj/maven/test/EmployeeAssert.java")).exists();
+    assertThat(new File(employeeTargetDir, "org/assertj/maven/test2/adress/AddressAssert.java")).doesNotExist();
+    assertThat(new File(addressTargetDir, "org/assertj/maven/test2/adress/AddressAssert.java")).exists();
+    verify(employeeModule).addTestCompileSourceRoot(employeeTargetDir.getPath());
+    verify(addressModule).addTestCompileSourceRoot(addressTargetDir.getPath());
+  }
+
+  @Test
+  public void should_apply_every_parameter_of_the_module_configuration() throws Exception {
+    MavenProject employeeModule = module("employee", "org.assertj.maven.test.Employee",
+                                         parameter("generateBddAssertions", "false"),
+                                         parameter("entryPointClassPackage", "org.assertj.maven.entrypoints"));
+    AssertJAssertionsGeneratorAggregateMojo aggregateMojo = new AssertJAssertionsGeneratorAggregateMojo();
+    aggregateMojo.reactorProjects = newArrayList(employeeModule);
+
+    aggregateMojo.execute();
+
+    File entryPointsDir = new File(targetDirOf("employee"), "org/assertj/maven/entrypoints");
+    assertThat(new File(entryPointsDir, "Assertions.java")).exists();
+    assertThat(new File(entryPointsDir, "BddAssertions.java")).doesNotExist();
+  }
+
+  @Test
+  public void should_fail_on_a_parameter_that_is_not_supported() throws Exception {
+    MavenProject employeeModule = module("employee", "org.assertj.maven.test.Employee",
+                                         parameter("unknownParameter", "true"));
+    AssertJAssertionsGeneratorAggregateMojo aggregateMojo = new AssertJAssertionsGeneratorAggregateMojo();
+    aggregateMojo.reactorProjects = newArrayList(employeeModule);
+
+    try {
+      aggregateMojo.execute();
+      failBecauseExceptionWasNotThrown(MojoFailureException.class);
+    } catch (MojoFailureException e) {
+      assertThat(e).hasMessageContaining("unknownParameter");
+    }
+  }
+
+  @Test
+  public void should_fail_on_an_expression_that_is_not_supported() throws Exception {
+    MavenProject employeeModule = module("employee", "org.assertj.maven.test.Employee",
+                                         parameter("targetDir", "${session.executionRootDirectory}/assertions"));
+    AssertJAssertionsGeneratorAggregateMojo aggregateMojo = new AssertJAssertionsGeneratorAggregateMojo();
+    aggregateMojo.reactorProjects = newArrayList(employeeModule);
+
+    try {
+      aggregateMojo.execute();
+      failBecauseExceptionWasNotThrown(MojoFailureException.class);
+    } catch (MojoFailureException e) {
+      assertThat(e).hasMessageContaining("${session.executionRootDirectory}");
+    }
+  }
+
+  private static Xpp3Dom parameter(String name, String value) {
+    Xpp3Dom parameter = new Xpp3Dom(name);
+    parameter.setValue(value);
+    return parameter;
+  }
+
+  private MavenProject module(String name, String className, Xpp3Dom... parameters) throws Exception {
+    MavenProject module = mock(MavenProject.class);
+    Build build = new Build();
+    build.setDirectory(new File(temporaryFolder.getRoot(), name).getPath());
+    when(module.getBuild()).thenReturn(build);
+    Plugin plugin = new Plugin();
+    plugin.setGroupId("org.assertj");
+    plugin.setArtifactId("assertj-assertions-generator-maven-plugin");
+    Xpp3Dom configuration = new Xpp3Dom("configuration");
+    Xpp3Dom classes = new Xpp3Dom("classes");
+    Xpp3Dom param = new Xpp3Dom("param");
+    param.setValue(className);
+    classes.addChild(param);
+    configuration.addChild(classes);
+    Xpp3Dom cacheDirectory = new Xpp3Dom("cacheDirectory");
+    cacheDirectory.setValue(new File(temporaryFolder.getRoot(), "cache").getPath());
+    configuration.addChild(cacheDirectory);
+    for (Xpp3Dom parameter : parameters) {
+      configuration.addChild(parameter);
+    }
+    plugin.setConfiguration(configuration);
+    when(module.getBuildPlugins()).thenReturn(newArrayList(plugin));
+    List<String> classpath = newArrayList(System.getProperty("java.class.path").split(File.pathSeparator));
+    when(module.getCompileClasspathElements()).thenReturn(classpath);
+    when(module.getId()).thenReturn(name);
+    return module;
+  }
+
+  private File targetDirOf(String module) {
+    return new File(new File(temporaryFolder.getRoot(), module), "generated-test-sources/assertj-assertions");
+  }
+}
@@ -13,24 +13,41 @@
 package org.assertj.maven;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.STANDARD;
 import static org.assertj.core.util.Arrays.array;
 import static org.assertj.core.util.Lists.newArrayList;
 import static org.assertj.maven.AssertJAssertionsGeneratorMojo.shouldHaveNonEmptyPackagesOrClasses;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.RENDERING;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
 import org.assertj.assertions.generator.BaseAssertionGenerator;
 import org.assertj.assertions.generator.description.ClassDescription;
 import org.assertj.maven.generator.AssertionsGenerator;
 import org.assertj.maven.generator.AssertionsGeneratorReport;
+import org.assertj.maven.generator.EntryPointSharding;
+import org.assertj.maven.generator.ReportFormat;
 import org.assertj.maven.test.Employee;
 import org.assertj.maven.test.name.Name;
 import org.assertj.maven.test.name.NameService;
@@ -212,6 +229,22 @@ public class AssertJAssertionsGeneratorMojoTest {
     assertThat(assertionsFileFor(Employee.class)).doesNotExist();
   }
   
+  @Test
+  public void plugin_should_filter_classes_with_literal_class_names_and_package_prefixes() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test");
+    assertjAssertionsGeneratorMojo.includes = array("org\\.assertj\\.maven\\.test\\..*");
+    assertjAssertionsGeneratorMojo.excludes = array("org\\.assertj\\.maven\\.test\\.name\\.NameService",
+                                                    "org.*Nothing");
+    List<String> classes = newArrayList(Employee.class.getName(), Name.class.getName());
+    when(mavenProject.getCompileClasspathElements()).thenReturn(classes);
+
+    assertjAssertionsGeneratorMojo.execute();
+
+    assertThat(assertionsFileFor(Name.class)).exists();
+    assertThat(assertionsFileFor(Employee.class)).exists();
+    assertThat(assertionsFileFor(NameService.class)).doesNotExist();
+  }
+
   @Test
   public void plugin_should_not_generate_any_assertions_as_all_package_classes_are_excluded() throws Exception {
     assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test");
@@ -241,6 +274,38 @@ public class AssertJAssertionsGeneratorMojoTest {
     assertThat(assertionsFileFor(Employee.class)).doesNotExist();
   }
   
+  @Test
+  public void plugin_should_only_search_package_classes_in_the_scan_roots() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test");
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test2.adress.Address");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setScanBytecode(true);
+    generator.setScanRoots(newArrayList(temporaryFolder.newFolder("classes")));
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(assertionsFileFor(Employee.class)).doesNotExist();
+    assertThat(assertionsFileFor(Address.class)).exists();
+  }
+
+  @Test
+  public void excluded_classes_should_never_be_loaded_when_scanning_bytecode() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("filtered");
+    File classesDirectory = compiledClasses("filtered-classes", "Kept", "Excluded");
+    RecordingClassLoader classLoader = new RecordingClassLoader(classesDirectory);
+    AssertionsGenerator generator = new AssertionsGenerator(classLoader);
+    generator.setScanBytecode(true);
+    generator.setExcludePatterns(array("filtered\\.Excluded"));
+    generator.setLog(assertjAssertionsGeneratorMojo.getLog());
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(assertionsFileFor("filtered.KeptAssert")).exists();
+    assertThat(assertionsFileFor("filtered.ExcludedAssert")).doesNotExist();
+    assertThat(classLoader.loadedClassNames).contains("filtered.Kept").doesNotContain("filtered.Excluded");
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void executing_plugin_with_error_should_be_reported_in_generator_report() throws Exception {
@@ -270,6 +335,272 @@ public class AssertJAssertionsGeneratorMojoTest {
     assertThat(report.getInputClassesNotFound()).as("check report").containsExactly("org.Bar", "org.Foo");
   }
   
+  @Test
+  public void executing_plugin_incrementally_should_not_regenerate_up_to_date_assertions() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(incrementalGenerator());
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(incrementalGenerator());
+
+    assertThat(assertionsFileFor(Employee.class)).exists();
+    assertThat(report.getGeneratedCustomAssertionFileNames()).isEmpty();
+    assertThat(report.getUpToDateCustomAssertionFilesCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void executing_plugin_incrementally_should_remove_assertions_of_classes_no_longer_generated() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee", "org.assertj.maven.test.name.Name");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(incrementalGenerator());
+    assertThat(assertionsFileFor(Name.class)).exists();
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(incrementalGenerator());
+
+    assertThat(assertionsFileFor(Employee.class)).exists();
+    assertThat(assertionsFileFor(Name.class)).doesNotExist();
+  }
+
+  @Test
+  public void should_not_rewrite_generated_files_whose_content_has_not_changed() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(writeChangedFilesOnlyGenerator());
+    File employeeAssertFile = assertionsFileFor(Employee.class);
+    assertThat(employeeAssertFile.setLastModified(1000L)).isTrue();
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(writeChangedFilesOnlyGenerator());
+
+    assertThat(report.getWrittenFilesCount()).isEqualTo(0);
+    assertThat(report.getUnchangedFilesCount()).isEqualTo(1);
+    assertThat(employeeAssertFile.lastModified()).isEqualTo(1000L);
+  }
+
+  @Test
+  public void should_rewrite_unchanged_generated_files_if_not_writing_changed_files_only() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setWriteChangedFilesOnly(false);
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+    File employeeAssertFile = assertionsFileFor(Employee.class);
+    assertThat(employeeAssertFile.setLastModified(1000L)).isTrue();
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(report.getWrittenFilesCount()).isEqualTo(1);
+    assertThat(report.getUnchangedFilesCount()).isEqualTo(0);
+    assertThat(employeeAssertFile.lastModified()).isNotEqualTo(1000L);
+  }
+
+  @Test
+  public void should_find_the_same_classes_when_scanning_the_classpath_in_parallel() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    AssertionsGenerator sequentialGenerator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    sequentialGenerator.setScanBytecode(true);
+    AssertionsGeneratorReport sequentialReport = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(sequentialGenerator);
+    AssertionsGenerator parallelGenerator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    parallelGenerator.setScanBytecode(true);
+    parallelGenerator.setThreads(4);
+
+    AssertionsGeneratorReport parallelReport = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(parallelGenerator);
+
+    Set<String> sequentiallyGeneratedFiles = sequentialReport.getGeneratedCustomAssertionFileNames();
+    assertThat(parallelReport.getGeneratedCustomAssertionFileNames()).containsExactly(sequentiallyGeneratedFiles.toArray(new String[0]));
+    assertThat(assertionsFileFor(Name.class)).exists();
+  }
+
+  @Test
+  public void should_regenerate_assertions_when_templates_directory_content_changes() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    File templatesDirectory = copyOfDefaultTemplates();
+    AssertionsGenerator generator = incrementalGenerator();
+    generator.setTemplatesDirectory(templatesDirectory);
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+    AssertionsGeneratorReport upToDateReport = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+    assertThat(upToDateReport.getUpToDateCustomAssertionFilesCount()).isEqualTo(1);
+    FileUtils.write(new File(templatesDirectory, "README.txt"), "edited templates");
+    generator.setTemplatesDirectory(templatesDirectory);
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(report.getUpToDateCustomAssertionFilesCount()).isZero();
+    assertThat(report.getGeneratedCustomAssertionFilesCount()).isEqualTo(1);
+    assertThat(assertionsFileFor(Employee.class)).exists();
+  }
+
+  @Test
+  public void should_regenerate_entry_points_when_the_type_parameters_of_a_class_change() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("generics.Box");
+    File boxClasses = compiledBox("box-v1", "Box<T>");
+    AssertionsGenerator generator = new AssertionsGenerator(new URLClassLoader(new URL[] { boxClasses.toURI().toURL() }));
+    generator.setIncremental(true);
+    generator.enableEntryPointClassesGenerationFor(STANDARD);
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+    File entryPoint = new File(temporaryFolder.getRoot(), "generics" + File.separator + "Assertions.java");
+    assertThat(entryPoint.setLastModified(1000L)).isTrue();
+    File changedBoxClasses = compiledBox("box-v2", "Box<T extends Number>");
+    generator = new AssertionsGenerator(new URLClassLoader(new URL[] { changedBoxClasses.toURI().toURL() }));
+    generator.setIncremental(true);
+    generator.enableEntryPointClassesGenerationFor(STANDARD);
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(entryPoint.lastModified()).isNotEqualTo(1000L);
+  }
+
+  @Test
+  public void should_only_regenerate_entry_point_shards_whose_classes_have_changed() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test2");
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    AssertionsGenerator generator = incrementalGenerator();
+    generator.enableEntryPointClassesGenerationFor(STANDARD);
+    generator.setEntryPointSharding(EntryPointSharding.PACKAGE, 0);
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+    File employeeShard = assertionsEntryPointFile("Assertions.java");
+    File addressShard = new File(assertionsFileFor(Address.class).getParentFile(), "Assertions.java");
+    assertThat(contentOf(employeeShard)).contains("EmployeeAssert").doesNotContain("AddressAssert");
+    assertThat(contentOf(addressShard)).contains("AddressAssert").doesNotContain("EmployeeAssert");
+    addressShard.setLastModified(0);
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee", "org.assertj.maven.test.name.Name");
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(addressShard.lastModified()).isZero();
+    File nameShard = new File(assertionsFileFor(Name.class).getParentFile(), "Assertions.java");
+    assertThat(contentOf(nameShard)).contains("NameAssert");
+  }
+
+  @Test
+  public void should_only_generate_assertions_for_classes_used_by_test_sources() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    File testSources = temporaryFolder.newFolder("test-sources");
+    File employeeTest = new File(testSources, "org/assertj/maven/EmployeeTest.java");
+    FileUtils.write(employeeTest, "package org.assertj.maven;\n"
+                                  + "import static org.assertj.maven.test.EmployeeAssert.assertThat;\n"
+                                  + "// no assertion on Name\n"
+                                  + "public class EmployeeTest {}\n");
+    AssertionsGenerator generator = writeChangedFilesOnlyGenerator();
+    generator.setUsageSources(newArrayList(testSources), new File(temporaryFolder.getRoot(), "usages.index"));
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(assertionsFileFor(Employee.class)).exists();
+    assertThat(assertionsFileFor(Name.class)).doesNotExist();
+    assertThat(report.getClassesPrunedFromAssertionGeneration()).contains(Name.class.getName())
+                                                                .doesNotContain(Employee.class.getName());
+  }
+
+  @Test
+  public void should_write_generated_files_through_temporary_files() throws Exception {
+    assertjAssertionsGeneratorMojo.packages = array("org.assertj.maven.test", "org.assertj.maven.test2");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(writeChangedFilesOnlyGenerator());
+
+    assertThat(report.getWrittenFilesCount()).isGreaterThan(0);
+    assertThat(assertionsFileFor(Address.class)).exists();
+    assertThat(FileUtils.listFiles(temporaryFolder.getRoot(), new String[] { "tmp" }, true)).isEmpty();
+  }
+
+  @Test
+  public void should_generate_assertions_in_an_archive_compiled_to_the_test_classes() throws Exception {
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    assertjAssertionsGeneratorMojo.outputMode = "archive";
+    assertjAssertionsGeneratorMojo.targetDir = new File(temporaryFolder.getRoot(), "assertions").getPath();
+    List<String> classpath = newArrayList(System.getProperty("java.class.path").split(File.pathSeparator));
+    when(mavenProject.getCompileClasspathElements()).thenReturn(classpath);
+    File testClasses = temporaryFolder.newFolder("test-classes");
+    Build build = new Build();
+    build.setTestOutputDirectory(testClasses.getPath());
+    when(mavenProject.getBuild()).thenReturn(build);
+    when(mavenProject.getProperties()).thenReturn(new Properties());
+    AssertionsGenerator generator = writeChangedFilesOnlyGenerator();
+    generator.setOutputArchive(new File(assertjAssertionsGeneratorMojo.targetDir + ".jar"));
+
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(new File(assertjAssertionsGeneratorMojo.targetDir)).doesNotExist();
+    assertThat(new File(assertjAssertionsGeneratorMojo.targetDir + ".jar")).isFile();
+    assertThat(new File(testClasses, basePathName(Employee.class) + "Assert.class")).exists();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void should_keep_the_previous_archive_if_the_generation_fails() throws Exception {
+    File archive = new File(assertjAssertionsGeneratorMojo.targetDir + ".jar");
+    FileUtils.write(archive, "previous archive");
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setOutputArchive(archive);
+    BaseAssertionGenerator baseGenerator = mock(BaseAssertionGenerator.class);
+    generator.setBaseGenerator(baseGenerator);
+    when(baseGenerator.generateCustomAssertionContentFor(any(ClassDescription.class))).thenThrow(IOException.class);
+
+    AssertionsGeneratorReport report = generator.generateAssertionsFor(new String[0], array(Employee.class.getName()),
+                                                                       assertjAssertionsGeneratorMojo.targetDir, null,
+                                                                       false);
+
+    assertThat(report.getReportedException()).isInstanceOf(IOException.class);
+    assertThat(contentOf(archive)).isEqualTo("previous archive");
+    assertThat(new File(archive.getPath() + ".tmp")).doesNotExist();
+  }
+
+  @Test
+  public void should_take_assertions_rendered_for_another_module_from_the_cache() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder("cache");
+    File module1TargetDir = temporaryFolder.newFolder("module1");
+    File module2TargetDir = temporaryFolder.newFolder("module2");
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    assertjAssertionsGeneratorMojo.targetDir = module1TargetDir.getAbsolutePath();
+    assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(cachingGenerator(cacheDirectory));
+    assertjAssertionsGeneratorMojo.targetDir = module2TargetDir.getAbsolutePath();
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(cachingGenerator(cacheDirectory));
+
+    assertThat(report.getCachedCustomAssertionFilesCount()).isEqualTo(1);
+    String employeeAssertPath = basePathName(Employee.class) + "Assert.java";
+    assertThat(new File(module2TargetDir, employeeAssertPath)).hasContentEqualTo(new File(module1TargetDir,
+                                                                                          employeeAssertPath));
+  }
+
+  @Test
+  public void should_write_generation_metrics_by_phase() throws Exception {
+    File metricsFile = new File(temporaryFolder.newFolder("target"), "assertj-generator-metrics.json");
+    assertjAssertionsGeneratorMojo.metricsFile = metricsFile.getAbsolutePath();
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(writeChangedFilesOnlyGenerator());
+
+    assertThat(report.getGenerationMetrics().getWallTimeNanos(RENDERING)).isPositive();
+    assertThat(report.getReportContent()).contains("Generation metrics");
+    assertThat(metricsFile).exists();
+    assertThat(contentOf(metricsFile)).contains("\"RENDERING\": {\"wallTimeMillis\": ");
+  }
+
+  @Test
+  public void should_stream_report_entries_to_a_json_lines_file() throws Exception {
+    File reportFile = new File(temporaryFolder.newFolder("target"), "assertj-generator-report.jsonl");
+    assertjAssertionsGeneratorMojo.classes = array("org.assertj.maven.test.Employee");
+    when(mavenProject.getCompileClasspathElements()).thenReturn(newArrayList(Employee.class.getName()));
+    AssertionsGenerator generator = writeChangedFilesOnlyGenerator();
+    generator.setReportFile(reportFile, ReportFormat.JSONL, 0);
+
+    AssertionsGeneratorReport report = assertjAssertionsGeneratorMojo.executeWithAssertionGenerator(generator);
+
+    assertThat(report.getGeneratedCustomAssertionFilesCount()).isEqualTo(1);
+    assertThat(report.getGeneratedCustomAssertionFileNames()).isEmpty();
+    assertThat(report.getReportContent()).contains("1 more (1 in total), see " + reportFile.getPath());
+    assertThat(contentOf(reportFile)).contains("{\"type\":\"generated\",\"value\":\"org/assertj/maven/test/EmployeeAssert.java\"}")
+                                     .contains("{\"type\":\"generatedCount\",\"value\":1}");
+  }
+
   @Test
   public void should_fail_if_packages_and_classes_parameters_are_null() throws Exception {
     try {
@@ -280,6 +611,75 @@ public class AssertJAssertionsGeneratorMojoTest {
     }
   }
 
+  private File compiledBox(String directoryName, String boxDeclaration) throws Exception {
+    File classesDirectory = temporaryFolder.newFolder(directoryName);
+    File source = new File(temporaryFolder.newFolder(directoryName + "-sources"), "Box.java");
+    FileUtils.write(source, "package generics;\n"
+                            + "public class " + boxDeclaration + " {\n"
+                            + "  public T getContent() { return null; }\n"
+                            + "}\n");
+    int status = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classesDirectory.getPath(),
+                                                          source.getPath());
+    assertThat(status).isZero();
+    return classesDirectory;
+  }
+
+  private File compiledClasses(String directoryName, String... classNames) throws Exception {
+    File classesDirectory = temporaryFolder.newFolder(directoryName);
+    File sourcesDirectory = temporaryFolder.newFolder(directoryName + "-sources");
+    List<String> arguments = newArrayList("-d", classesDirectory.getPath());
+    for (String className : classNames) {
+      File source = new File(sourcesDirectory, className + ".java");
+      FileUtils.write(source, "package filtered;\n"
+                              + "public class " + className + " {\n"
+                              + "  public String getName() { return null; }\n"
+                              + "}\n");
+      arguments.add(source.getPath());
+    }
+    int status = ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(new String[0]));
+    assertThat(status).isZero();
+    return classesDirectory;
+  }
+
+  private File copyOfDefaultTemplates() throws Exception {
+    File templatesDirectory = temporaryFolder.newFolder("templates");
+    URL generatorLocation = BaseAssertionGenerator.class.getProtectionDomain().getCodeSource().getLocation();
+    File generatorClasspathRoot = new File(generatorLocation.toURI());
+    if (generatorClasspathRoot.isDirectory()) {
+      FileUtils.copyDirectory(new File(generatorClasspathRoot, "templates"), templatesDirectory);
+      return templatesDirectory;
+    }
+    ZipFile generatorJar = new ZipFile(generatorClasspathRoot);
+    try {
+      for (ZipEntry entry : Collections.list(generatorJar.entries())) {
+        if (entry.isDirectory() || !entry.getName().startsWith("templates/")) continue;
+        File template = new File(templatesDirectory, entry.getName().substring("templates/".length()));
+        FileUtils.copyInputStreamToFile(generatorJar.getInputStream(entry), template);
+      }
+    } finally {
+      generatorJar.close();
+    }
+    return templatesDirectory;
+  }
+
+  private static AssertionsGenerator incrementalGenerator() throws IOException {
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setIncremental(true);
+    return generator;
+  }
+
+  private static AssertionsGenerator writeChangedFilesOnlyGenerator() throws IOException {
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setWriteChangedFilesOnly(true);
+    return generator;
+  }
+
+  private static AssertionsGenerator cachingGenerator(File cacheDirectory) throws IOException {
+    AssertionsGenerator generator = writeChangedFilesOnlyGenerator();
+    generator.setCacheDirectory(cacheDirectory, 1024 * 1024);
+    return generator;
+  }
+
   private File assertionsFileFor(Class<?> clazz) throws IOException {
     return new File(temporaryFolder.getRoot(), basePathName(clazz) + "Assert.java");
   }
@@ -310,4 +710,22 @@ public class AssertJAssertionsGeneratorMojoTest {
     return new File(temporaryFolder.getRoot(), "my.custom.pkg".replace('.', File.separatorChar) + File.separator
                                                + "Assertions.java");
   }
+
+  /**
+   * Records the names of the classes it is asked to load.
+   */
+  private static class RecordingClassLoader extends URLClassLoader {
+    private final Set<String> loadedClassNames = Collections.synchronizedSet(new HashSet<String>());
+
+    RecordingClassLoader(File classesDirectory) throws IOException {
+      super(new URL[] { classesDirectory.toURI().toURL() }, Thread.currentThread().getContextClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      loadedClassNames.add(name);
+      return super.loadClass(name, resolve);
+    }
+  }
+
 }
@@ -0,0 +1,80 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Arrays.array;
+import static org.assertj.core.util.Lists.newArrayList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssertJAssertionsWatchMojoTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private AssertJAssertionsWatchMojo watchMojo;
+  private File classesDirectory;
+  private File targetDir;
+
+  @Before
+  public void setUp() throws Exception {
+    classesDirectory = temporaryFolder.newFolder("classes");
+    targetDir = temporaryFolder.newFolder("assertions");
+    MavenProject project = mock(MavenProject.class);
+    when(project.getCompileClasspathElements()).thenReturn(newArrayList(classesDirectory.getPath()));
+    Build build = new Build();
+    build.setTestOutputDirectory(temporaryFolder.newFolder("test-classes").getPath());
+    when(project.getBuild()).thenReturn(build);
+    watchMojo = new AssertJAssertionsWatchMojo();
+    watchMojo.project = project;
+    watchMojo.targetDir = targetDir.getPath();
+    watchMojo.classes = array("org.assertj.maven.test.Employee");
+    watchMojo.watchQuietPeriod = 10;
+  }
+
+  @After
+  public void tearDown() {
+    watchMojo.stopWatching();
+  }
+
+  @Test
+  public void should_generate_assertions_when_watching_starts() throws Exception {
+    watchMojo.startWatching();
+
+    assertThat(new File(targetDir, "org/assertj/maven/test/EmployeeAssert.java")).exists();
+  }
+
+  @Test
+  public void should_only_generate_assertions_again_when_classes_have_changed() throws Exception {
+    watchMojo.startWatching();
+    assertThat(watchMojo.generateIfClassesChanged()).isFalse();
+
+    FileUtils.write(new File(classesDirectory, "Recompiled.class"), "new class");
+
+    assertThat(watchMojo.generateIfClassesChanged()).isTrue();
+    assertThat(watchMojo.generateIfClassesChanged()).isFalse();
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.newArrayList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.assertj.maven.test.Employee;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IndexedClassLoaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_load_classes_and_resources_of_a_duplicated_classpath_entry() throws Exception {
+    String testClasses = new File(Employee.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(testClasses, testClasses), null);
+    try {
+      Class<?> employee = classLoader.loadClass(Employee.class.getName());
+
+      assertThat(employee.getClassLoader()).isSameAs(classLoader);
+      assertThat(employee.getPackage().getName()).isEqualTo("org.assertj.maven.test");
+      assertThat(classLoader.getURLs()).hasSize(1);
+      assertThat(Collections.list(classLoader.getResources("org/assertj/maven/test"))).hasSize(1);
+      assertThat(classLoader.getResource("org/assertj/maven/test/Employee.class")).isNotNull();
+      assertThat(classLoader.getResource("org/assertj/maven/test/Unknown.class")).isNull();
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void should_find_files_added_to_a_directory_after_the_class_loader_creation() throws Exception {
+    File classes = temporaryFolder.newFolder("classes");
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(classes.getPath()), null);
+    try {
+      assertThat(classLoader.getResource("org/example/added.txt")).isNull();
+
+      FileUtils.write(new File(classes, "org/example/added.txt"), "added");
+
+      assertThat(classLoader.getResource("org/example/added.txt")).isNotNull();
+      assertThat(classLoader.getResource("org/example")).isNotNull();
+      assertThat(contentOf(classLoader.getResourceAsStream("org/example/added.txt"))).isEqualTo("added");
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void should_look_classpath_entries_up_in_the_classpath_order() throws Exception {
+    File jar = jarOf("first.jar", false, "org/example/file.txt", "jar");
+    File classes = temporaryFolder.newFolder("classes");
+    FileUtils.write(new File(classes, "org/example/file.txt"), "directory");
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(jar.getPath(), classes.getPath()), null);
+    try {
+      assertThat(contentOf(classLoader.getResourceAsStream("org/example/file.txt"))).isEqualTo("jar");
+      assertThat(Collections.list(classLoader.getResources("org/example/file.txt"))).hasSize(2);
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void should_read_the_entries_of_a_multi_release_jar_for_the_running_java_version() throws Exception {
+    File jar = jarOf("multi-release.jar", true, "org/example/file.txt", "base",
+                     "META-INF/versions/9/org/example/file.txt", "9",
+                     "META-INF/versions/9/org/example9/file.txt", "9 only");
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(jar.getPath()), null);
+    try {
+      boolean java9OrLater = !System.getProperty("java.specification.version").startsWith("1.");
+      assertThat(contentOf(classLoader.getResourceAsStream("org/example/file.txt"))).isEqualTo(java9OrLater ? "9"
+          : "base");
+      assertThat(classLoader.getResource("org/example9/file.txt") != null).isEqualTo(java9OrLater);
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void should_open_the_jars_again_after_closing_them() throws Exception {
+    File jar = jarOf("classes.jar", false, "org/example/file.txt", "content");
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(jar.getPath()), null);
+    try {
+      classLoader.closeJars();
+
+      assertThat(contentOf(classLoader.getResourceAsStream("org/example/file.txt"))).isEqualTo("content");
+    } finally {
+      classLoader.close();
+    }
+  }
+
+  @Test
+  public void should_not_find_anything_once_closed() throws Exception {
+    File jar = jarOf("classes.jar", false, "org/example/file.txt", "content");
+    IndexedClassLoader classLoader = IndexedClassLoader.of(newArrayList(jar.getPath()), null);
+
+    classLoader.close();
+
+    assertThat(classLoader.getResource("org/example/file.txt")).isNull();
+  }
+
+  private File jarOf(String jarName, boolean multiRelease, String... pathsAndContents) throws IOException {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    if (multiRelease) manifest.getMainAttributes().putValue("Multi-Release", "true");
+    File jar = new File(temporaryFolder.getRoot(), jarName);
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(jar), manifest);
+    try {
+      for (int i = 0; i < pathsAndContents.length; i += 2) {
+        output.putNextEntry(new ZipEntry(pathsAndContents[i]));
+        output.write(pathsAndContents[i + 1].getBytes("UTF-8"));
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+    return jar;
+  }
+
+  private static String contentOf(InputStream resource) throws IOException {
+    assertThat(resource).isNotNull();
+    try {
+      return IOUtils.toString(resource, "UTF-8");
+    } finally {
+      resource.close();
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.newArrayList;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectClassLoaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_reuse_the_class_loader_of_an_unchanged_classpath() throws Exception {
+    List<String> classpath = newArrayList(temporaryFolder.newFolder("classes").getAbsolutePath());
+    ClassLoader parent = Thread.currentThread().getContextClassLoader();
+    ProjectClassLoader first = ProjectClassLoader.acquire(classpath, parent, true);
+    ProjectClassLoader second = ProjectClassLoader.acquire(classpath, parent, true);
+    temporaryFolder.newFile("classes/Added.class");
+    ProjectClassLoader afterChange = ProjectClassLoader.acquire(classpath, parent, true);
+    ProjectClassLoader notReused = ProjectClassLoader.acquire(classpath, parent, false);
+
+    assertThat(second.getClassLoader()).isSameAs(first.getClassLoader());
+    assertThat(afterChange.getClassLoader()).isNotSameAs(first.getClassLoader());
+    assertThat(notReused.getClassLoader()).isNotSameAs(afterChange.getClassLoader());
+    first.release();
+    second.release();
+    afterChange.release();
+    notReused.release();
+  }
+
+}
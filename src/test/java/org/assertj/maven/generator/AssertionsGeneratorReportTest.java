@@ -0,0 +1,43 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.newArrayList;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssertionsGeneratorReportTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_list_every_entry_of_a_console_report_when_an_entry_is_reported_twice() throws Exception {
+    // the default console format does not stream the entries to a report file
+    AssertionsGeneratorReport report = new AssertionsGeneratorReport();
+    File assertionsFile = temporaryFolder.newFile("EmployeeAssert.java");
+
+    report.addGeneratedAssertionFile(assertionsFile);
+    report.addGeneratedAssertionFile(assertionsFile);
+    report.setExcludedClassesFromAssertionGeneration(newArrayList("org.assertj.maven.test.Employee",
+                                                                  "org.assertj.maven.test.Employee"));
+
+    assertThat(report.getReportContent()).contains(assertionsFile.getCanonicalPath()).doesNotContain("more (");
+  }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.assertions.generator.AssertionsEntryPointType.BDD;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.SOFT;
+import static org.assertj.assertions.generator.AssertionsEntryPointType.STANDARD;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+import static org.assertj.core.util.Arrays.array;
+import static org.assertj.core.util.Lists.newArrayList;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CACHE;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.CONVERSION;
+import static org.assertj.maven.generator.GenerationMetrics.Phase.RENDERING;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.assertj.maven.test.Employee;
+import org.assertj.maven.test.name.Name;
+import org.assertj.maven.test2.adress.Address;
+import org.assertj.assertions.generator.AssertionsEntryPointType;
+import org.assertj.assertions.generator.BaseAssertionGenerator;
+import org.assertj.assertions.generator.description.ClassDescription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssertionsGeneratorTest {
+
+  private static final String[] PACKAGES = array("org.assertj.maven.test", "org.assertj.maven.test2");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_generate_the_same_files_with_several_threads_as_with_a_single_thread() throws Exception {
+    File sequentiallyGenerated = generateAssertionsIn("sequential", 1, false);
+    File generatedInParallel = generateAssertionsIn("parallel", 4, false);
+
+    assertThat(new File(generatedInParallel, "org/assertj/maven/test/EmployeeAssert.java")).exists();
+    assertSameFiles(generatedInParallel, sequentiallyGenerated);
+  }
+
+  @Test
+  public void should_generate_the_same_hierarchical_files_with_several_threads_as_with_a_single_thread()
+      throws Exception {
+    File sequentiallyGenerated = generateAssertionsIn("sequential", 1, true);
+    File generatedInParallel = generateAssertionsIn("parallel", 4, true);
+
+    assertThat(new File(generatedInParallel, "org/assertj/maven/test/AbstractEmployeeAssert.java")).exists();
+    assertSameFiles(generatedInParallel, sequentiallyGenerated);
+  }
+
+  @Test
+  public void should_render_entry_points_in_parallel() throws Exception {
+    File targetDirectory = temporaryFolder.newFolder("entry-points");
+    EntryPointRenderingRecorder baseGenerator = new EntryPointRenderingRecorder();
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setBaseGenerator(baseGenerator);
+    generator.setWriteChangedFilesOnly(true);
+    generator.enableEntryPointClassesGenerationFor(STANDARD);
+    generator.enableEntryPointClassesGenerationFor(BDD);
+    generator.enableEntryPointClassesGenerationFor(SOFT);
+    generator.setThreads(4);
+
+    generator.generateAssertionsFor(array("org.assertj.maven.test"), new String[0], targetDirectory.getAbsolutePath(),
+                                    "org.assertj.maven.test", false);
+
+    File entryPointsDirectory = new File(targetDirectory, "org/assertj/maven/test");
+    assertThat(new File(entryPointsDirectory, "Assertions.java")).exists();
+    assertThat(new File(entryPointsDirectory, "SoftAssertions.java")).exists();
+    assertThat(contentOf(new File(entryPointsDirectory, "BddAssertions.java"))).contains("EmployeeAssert then(");
+    // each entry point type is rendered by its own generation thread
+    assertThat(baseGenerator.renderingThreads).hasSize(3).doesNotContain(Thread.currentThread());
+  }
+
+  @Test
+  public void should_keep_the_classes_reachable_from_the_classes_used_by_test_sources() throws Exception {
+    File testSources = temporaryFolder.newFolder("test-sources");
+    FileUtils.write(new File(testSources, "org/assertj/maven/EmployeeTest.java"),
+                    "package org.assertj.maven;\n"
+                    + "import org.assertj.maven.test.Employee;\n"
+                    + "public class EmployeeTest {\n"
+                    + "  void address(Employee employee) { assertThat(employee.getAddresses().get(0)); }\n"
+                    + "}\n");
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setUsageSources(newArrayList(testSources), new File(temporaryFolder.getRoot(), "usages.index"));
+    String targetDirectory = temporaryFolder.newFolder("target").getAbsolutePath();
+
+    AssertionsGeneratorReport report = generator.generateAssertionsFor(PACKAGES, new String[0], targetDirectory,
+                                                                       "org.assertj.maven.test", false);
+
+    assertThat(report.getReportedException()).isNull();
+    assertThat(report.getClassesPrunedFromAssertionGeneration()).contains(Name.class.getName())
+                                                                .doesNotContain(Employee.class.getName(),
+                                                                                Address.class.getName());
+  }
+
+  @Test
+  public void should_record_the_assertions_taken_from_the_cache_apart_from_the_rendering() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder("cache");
+    generateCachedAssertions(cacheDirectory, "first");
+
+    GenerationMetrics metrics = generateCachedAssertions(cacheDirectory, "second");
+
+    assertThat(metrics.getWallTimeNanos(CACHE)).isPositive();
+    assertThat(metrics.getWallTimeNanos(CONVERSION)).isZero();
+    assertThat(metrics.getWallTimeNanos(RENDERING)).isZero();
+  }
+
+  @Test
+  public void should_filter_classes_without_a_log() throws Exception {
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setIncludePatterns(array("org\\.assertj\\.maven\\.test\\..*"));
+    generator.setExcludePatterns(array(".*Name"));
+
+    assertThat(generator.isAssertionsGenerationEnabledFor("org.assertj.maven.test.Employee")).isTrue();
+    assertThat(generator.isAssertionsGenerationEnabledFor("org.assertj.maven.test2.adress.Address")).isFalse();
+    assertThat(generator.isAssertionsGenerationEnabledFor("org.assertj.maven.test.name.Name")).isFalse();
+  }
+
+  private File generateAssertionsIn(String directoryName, int threads, boolean hierarchical) throws Exception {
+    File targetDirectory = temporaryFolder.newFolder(directoryName);
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.enableEntryPointClassesGenerationFor(STANDARD);
+    generator.enableEntryPointClassesGenerationFor(BDD);
+    generator.enableEntryPointClassesGenerationFor(SOFT);
+    generator.setThreads(threads);
+    AssertionsGeneratorReport report = generator.generateAssertionsFor(PACKAGES, new String[0],
+                                                                       targetDirectory.getAbsolutePath(),
+                                                                       "org.assertj.maven.test", hierarchical);
+    assertThat(report.getReportedException()).isNull();
+    return targetDirectory;
+  }
+
+  private GenerationMetrics generateCachedAssertions(File cacheDirectory, String directoryName) throws Exception {
+    AssertionsGenerator generator = new AssertionsGenerator(Thread.currentThread().getContextClassLoader());
+    generator.setWriteChangedFilesOnly(true);
+    generator.setCacheDirectory(cacheDirectory, Long.MAX_VALUE);
+    String targetDirectory = temporaryFolder.newFolder(directoryName).getAbsolutePath();
+    AssertionsGeneratorReport report = generator.generateAssertionsFor(PACKAGES, new String[0], targetDirectory,
+                                                                       "org.assertj.maven.test", false);
+    assertThat(report.getReportedException()).isNull();
+    return report.getGenerationMetrics();
+  }
+
+  private static void assertSameFiles(File actualDirectory, File expectedDirectory) throws IOException {
+    List<String> expectedPaths = relativePathsOfFilesIn(expectedDirectory);
+    assertThat(expectedPaths).isNotEmpty();
+    assertThat(relativePathsOfFilesIn(actualDirectory)).isEqualTo(expectedPaths);
+    for (String path : expectedPaths) {
+      byte[] expectedContent = FileUtils.readFileToByteArray(new File(expectedDirectory, path));
+      assertThat(new File(actualDirectory, path)).hasBinaryContent(expectedContent);
+    }
+  }
+
+  private static List<String> relativePathsOfFilesIn(File directory) {
+    List<String> relativePaths = newArrayList();
+    for (File file : FileUtils.listFiles(directory, null, true)) {
+      relativePaths.add(file.getAbsolutePath().substring(directory.getAbsolutePath().length()));
+    }
+    Collections.sort(relativePaths);
+    return relativePaths;
+  }
+
+  /**
+   * Records the threads rendering the entry points.
+   */
+  private static class EntryPointRenderingRecorder extends BaseAssertionGenerator {
+    private final Set<Thread> renderingThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+    EntryPointRenderingRecorder() throws IOException {
+      super();
+    }
+
+    @Override
+    public String generateAssertionsEntryPointClassContentFor(Set<ClassDescription> classDescriptionSet,
+                                                              AssertionsEntryPointType assertionsEntryPointType,
+                                                              String entryPointClassPackage) {
+      renderingThreads.add(Thread.currentThread());
+      return super.generateAssertionsEntryPointClassContentFor(classDescriptionSet, assertionsEntryPointType,
+                                                               entryPointClassPackage);
+    }
+  }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.assertj.maven.test.Employee;
+import org.junit.Test;
+
+public class ClassFileHeaderTest {
+
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_SYNTHETIC = 0x1000;
+
+  @Test
+  public void should_read_the_names_of_a_class_its_superclass_and_its_interfaces() throws Exception {
+    // ArrayList constant pool has long constants (taking two entries) and members references to walk through
+    ClassFileHeader header = headerOf(ClassLoader.getSystemResourceAsStream("java/util/ArrayList.class"));
+
+    assertThat(header.getClassName()).isEqualTo("java.util.ArrayList");
+    assertThat(header.getSuperclassName()).isEqualTo("java.util.AbstractList");
+    assertThat(header.getInterfaceNames()).contains("java.util.List", "java.util.RandomAccess");
+    assertThat(header.isCandidateToAssertionsGeneration()).isTrue();
+  }
+
+  @Test
+  public void should_have_no_superclass_for_java_lang_Object() throws Exception {
+    ClassFileHeader header = headerOf(ClassLoader.getSystemResourceAsStream("java/lang/Object.class"));
+
+    assertThat(header.getSuperclassName()).isNull();
+  }
+
+  @Test
+  public void public_class_should_be_candidate_to_assertions_generation() throws Exception {
+    ClassFileHeader header = headerOf(classFileOf(Employee.class));
+
+    assertThat(header.getClassName()).isEqualTo(Employee.class.getName());
+    assertThat(header.isPublic()).isTrue();
+    assertThat(header.isCandidateToAssertionsGeneration()).isTrue();
+  }
+
+  @Test
+  public void non_public_nested_class_should_not_be_candidate_to_assertions_generation() throws Exception {
+    ClassFileHeader header = headerOf(classFileOf(PackagePrivate.class));
+
+    assertThat(header.getClassName()).isEqualTo(PackagePrivate.class.getName()).contains("$");
+    assertThat(header.isCandidateToAssertionsGeneration()).isFalse();
+  }
+
+  @Test
+  public void public_nested_class_should_be_candidate_to_assertions_generation() throws Exception {
+    ClassFileHeader header = headerOf(classFileOf(PublicNested.class));
+
+    assertThat(header.getClassName()).isEqualTo(PublicNested.class.getName());
+    assertThat(header.isCandidateToAssertionsGeneration()).isTrue();
+  }
+
+  @Test
+  public void protected_nested_class_should_not_be_public_although_its_class_file_is() throws Exception {
+    ClassFileHeader header = headerOf(classFileOf(ProtectedNested.class));
+
+    assertThat(header.isPublic()).isFalse();
+    assertThat(header.isCandidateToAssertionsGeneration()).isFalse();
+  }
+
+  @Test
+  public void anonymous_and_local_classes_should_not_be_candidate_to_assertions_generation() throws Exception {
+    class Local {}
+    Object anonymous = new Object() {};
+
+    assertThat(headerOf(classFileOf(Local.class)).isCandidateToAssertionsGeneration()).isFalse();
+    assertThat(headerOf(classFileOf(anonymous.getClass())).isCandidateToAssertionsGeneration()).isFalse();
+  }
+
+  @Test
+  public void synthetic_class_should_not_be_candidate_to_assertions_generation() throws Exception {
+    ClassFileHeader header = ClassFileHeader.read(classFile(ACC_PUBLIC | ACC_SYNTHETIC, "org/example/Synthetic"));
+
+    assertThat(header.getClassName()).isEqualTo("org.example.Synthetic");
+    assertThat(header.isCandidateToAssertionsGeneration()).isFalse();
+  }
+
+  @Test
+  public void package_info_should_not_be_candidate_to_assertions_generation() throws Exception {
+    ClassFileHeader header = ClassFileHeader.read(classFile(ACC_PUBLIC, "org/example/package-info"));
+
+    assertThat(header.isCandidateToAssertionsGeneration()).isFalse();
+  }
+
+  @Test
+  public void should_fail_to_read_a_file_that_is_not_a_class_file() throws Exception {
+    try {
+      ClassFileHeader.read(new ByteArrayInputStream("not a class file".getBytes("UTF-8")));
+      failBecauseExceptionWasNotThrown(IOException.class);
+    } catch (IOException e) {
+      assertThat(e).hasMessageContaining("magic number");
+    }
+  }
+
+  @Test
+  public void should_fail_to_read_a_truncated_class_file() throws Exception {
+    byte[] classFile = toByteArray(classFile(ACC_PUBLIC, "org/example/Truncated"));
+    try {
+      ClassFileHeader.read(new ByteArrayInputStream(Arrays.copyOf(classFile, classFile.length - 4)));
+      failBecauseExceptionWasNotThrown(IOException.class);
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  static class PackagePrivate {}
+
+  public static class PublicNested {}
+
+  protected static class ProtectedNested {}
+
+  private static ClassFileHeader headerOf(InputStream classFile) throws IOException {
+    try {
+      return ClassFileHeader.read(classFile);
+    } finally {
+      classFile.close();
+    }
+  }
+
+  private static InputStream classFileOf(Class<?> clazz) {
+    return clazz.getClassLoader().getResourceAsStream(clazz.getName().replace('.', '/') + ".class");
+  }
+
+  /**
+   * Returns a minimal class file header of the given class, extending Object with a long constant in its constant pool.
+   */
+  static InputStream classFile(int accessFlags, String internalClassName) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(0xCAFEBABE);
+    output.writeShort(0); // minor version
+    output.writeShort(50); // major version
+    output.writeShort(7); // constant pool count, a long takes two entries
+    output.writeByte(1); // #1 Utf8
+    output.writeUTF(internalClassName);
+    output.writeByte(7); // #2 Class #1
+    output.writeShort(1);
+    output.writeByte(1); // #3 Utf8
+    output.writeUTF("java/lang/Object");
+    output.writeByte(7); // #4 Class #3
+    output.writeShort(3);
+    output.writeByte(5); // #5 and #6 Long
+    output.writeLong(42L);
+    output.writeShort(accessFlags);
+    output.writeShort(2); // this class
+    output.writeShort(4); // superclass
+    output.writeShort(0); // interfaces count
+    output.close();
+    return new ByteArrayInputStream(bytes.toByteArray());
+  }
+
+  private static byte[] toByteArray(InputStream input) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (int b = input.read(); b != -1; b = input.read()) {
+      bytes.write(b);
+    }
+    return bytes.toByteArray();
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.newArrayList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.assertj.maven.generator.ClasspathIndex.JarIndex;
+import org.assertj.maven.test.Employee;
+import org.assertj.maven.test.name.Name;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathIndexTest {
+
+  private static final String EMPLOYEE_CLASS_FILE = "org/assertj/maven/test/Employee.class";
+  private static final String NAME_CLASS_FILE = "org/assertj/maven/test/name/Name.class";
+  private static final List<String> TEST_PACKAGE = newArrayList("org/assertj/maven/test");
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private ClasspathIndex classpathIndex;
+  private File jar;
+
+  @Before
+  public void setUp() throws Exception {
+    classpathIndex = new ClasspathIndex(temporaryFolder.newFolder("cache"));
+    jar = new File(temporaryFolder.getRoot(), "classes.jar");
+    writeJar(jar, EMPLOYEE_CLASS_FILE, classFileOf(Employee.class));
+  }
+
+  @Test
+  public void should_read_the_index_written_for_an_unchanged_jar() throws Exception {
+    JarIndex jarIndex = new JarIndex();
+    jarIndex.addPackage("org/assertj/maven/test/name");
+    jarIndex.addClass("org/assertj/maven/test", "Employee");
+    classpathIndex.write(jar, jarIndex);
+
+    JarIndex readJarIndex = classpathIndex.read(jar);
+
+    assertThat(readJarIndex).isNotNull();
+    assertThat(readJarIndex.isScanned("org/assertj/maven/test")).isTrue();
+    assertThat(readJarIndex.isScanned("org/assertj/maven/test/name")).isFalse();
+    assertThat(readJarIndex.isScanned(TEST_PACKAGE)).isFalse();
+    assertThat(readJarIndex.classNamesIn(TEST_PACKAGE)).containsExactly("org.assertj.maven.test.Employee");
+  }
+
+  @Test
+  public void should_not_have_the_index_of_a_jar_never_indexed() throws Exception {
+    assertThat(classpathIndex.read(jar)).isNull();
+  }
+
+  @Test
+  public void should_not_read_the_index_of_a_jar_whose_size_has_changed() throws Exception {
+    classpathIndex.write(jar, new JarIndex());
+    long lastModified = jar.lastModified();
+    writeJar(jar, EMPLOYEE_CLASS_FILE, classFileOf(Employee.class), NAME_CLASS_FILE, classFileOf(Name.class));
+    assertThat(jar.setLastModified(lastModified)).isTrue();
+
+    assertThat(classpathIndex.read(jar)).isNull();
+  }
+
+  @Test
+  public void should_not_read_the_index_of_a_jar_modified_since() throws Exception {
+    classpathIndex.write(jar, new JarIndex());
+    assertThat(jar.setLastModified(jar.lastModified() - 10000)).isTrue();
+
+    assertThat(classpathIndex.read(jar)).isNull();
+  }
+
+  @Test
+  public void should_not_read_the_index_of_a_removed_jar() throws Exception {
+    classpathIndex.write(jar, new JarIndex());
+    assertThat(jar.delete()).isTrue();
+
+    assertThat(classpathIndex.read(jar)).isNull();
+  }
+
+  @Test
+  public void should_not_read_a_corrupted_index() throws Exception {
+    classpathIndex.write(jar, new JarIndex());
+    File[] indexFiles = new File(temporaryFolder.getRoot(), "cache/classpath-index").listFiles();
+    assertThat(indexFiles).hasSize(1);
+    FileUtils.write(indexFiles[0], "corrupted");
+
+    assertThat(classpathIndex.read(jar)).isNull();
+  }
+
+  @Test
+  public void scanner_should_take_the_classes_of_an_unchanged_jar_from_the_index() throws Exception {
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName());
+    // same size and last modification time but not a jar anymore, only the index can give its classes
+    long lastModified = jar.lastModified();
+    FileUtils.writeByteArrayToFile(jar, new byte[(int) jar.length()]);
+    assertThat(jar.setLastModified(lastModified)).isTrue();
+
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName());
+    assertThat(new ClasspathScanner(classLoaderOf(jar)).findClassNamesInPackages("org.assertj.maven.test")).isEmpty();
+  }
+
+  @Test
+  public void scanner_should_scan_a_jar_again_once_modified() throws Exception {
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName());
+    writeJar(jar, EMPLOYEE_CLASS_FILE, classFileOf(Employee.class), NAME_CLASS_FILE, classFileOf(Name.class));
+    assertThat(jar.setLastModified(jar.lastModified() + 10000)).isTrue();
+
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName(),
+                                                                                          Name.class.getName());
+  }
+
+  @Test
+  public void scanner_should_scan_the_packages_not_indexed_yet() throws Exception {
+    writeJar(jar, EMPLOYEE_CLASS_FILE, classFileOf(Employee.class), NAME_CLASS_FILE, classFileOf(Name.class));
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test.name")).containsExactly(Name.class.getName());
+    assertThat(classpathIndex.read(jar).isScanned("org/assertj/maven/test")).isFalse();
+
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName(),
+                                                                                          Name.class.getName());
+    assertThat(classpathIndex.read(jar).isScanned(TEST_PACKAGE)).isTrue();
+  }
+
+  @Test
+  public void scanner_should_not_find_the_classes_of_a_removed_jar() throws Exception {
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).containsExactly(Employee.class.getName());
+    assertThat(jar.delete()).isTrue();
+
+    assertThat(scanner().findClassNamesInPackages("org.assertj.maven.test")).isEmpty();
+  }
+
+  private ClasspathScanner scanner() throws IOException {
+    return new ClasspathScanner(classLoaderOf(jar), classpathIndex, null);
+  }
+
+  private static ClassLoader classLoaderOf(File jar) throws IOException {
+    // no parent so that only the jar is scanned
+    return new URLClassLoader(new URL[] { jar.toURI().toURL() }, null);
+  }
+
+  private static void writeJar(File jar, Object... pathsAndContents) throws IOException {
+    ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      for (int i = 0; i < pathsAndContents.length; i += 2) {
+        output.putNextEntry(new ZipEntry((String) pathsAndContents[i]));
+        output.write((byte[]) pathsAndContents[i + 1]);
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+  }
+
+  private static byte[] classFileOf(Class<?> clazz) throws IOException {
+    InputStream classFile = clazz.getClassLoader().getResourceAsStream(clazz.getName().replace('.', '/') + ".class");
+    try {
+      return IOUtils.toByteArray(classFile);
+    } finally {
+      classFile.close();
+    }
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.assertj.maven.test.Employee;
+import org.assertj.maven.test.name.Name;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClasspathScannerTest {
+
+  private static final byte[] NOT_A_CLASS_FILE = { 1, 2, 3, 4 };
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private byte[] employeeClassFile;
+  private byte[] nameClassFile;
+
+  @Before
+  public void setUp() throws Exception {
+    employeeClassFile = classFileOf(Employee.class);
+    nameClassFile = classFileOf(Name.class);
+  }
+
+  @Test
+  public void should_find_classes_of_packages_and_subpackages_in_a_directory() throws Exception {
+    File directory = temporaryFolder.newFolder("classes");
+    write(directory, "org/assertj/maven/test/Employee.class", employeeClassFile);
+    write(directory, "org/assertj/maven/test/name/Name.class", nameClassFile);
+    write(directory, "org/assertj/maven/test/employee.txt", NOT_A_CLASS_FILE);
+
+    Set<String> classNames = scannerOf(directory).findClassNamesInPackages("org.assertj.maven.test");
+
+    assertThat(classNames).containsExactly("org.assertj.maven.test.Employee", "org.assertj.maven.test.name.Name");
+  }
+
+  @Test
+  public void should_find_classes_of_packages_and_subpackages_in_a_jar() throws Exception {
+    File jar = jarOf("classes.jar",
+                     "org/assertj/maven/test/name/Name.class", nameClassFile,
+                     "org/assertj/maven/test/Employee.class", employeeClassFile,
+                     "org/assertj/maven/test2/Other.class", NOT_A_CLASS_FILE);
+
+    Set<String> classNames = scannerOf(jar).findClassNamesInPackages("org.assertj.maven.test");
+
+    // sorted whatever the jar entries order
+    assertThat(classNames).containsExactly("org.assertj.maven.test.Employee", "org.assertj.maven.test.name.Name");
+  }
+
+  @Test
+  public void should_not_find_classes_of_packages_only_sharing_a_prefix() throws Exception {
+    File jar = jarOf("classes.jar", "org/assertj/maven/test/Employee.class", employeeClassFile);
+
+    assertThat(scannerOf(jar).findClassNamesInPackages("org.assertj.maven.te")).isEmpty();
+  }
+
+  @Test
+  public void should_find_classes_in_the_roots_order() throws Exception {
+    File jar = jarOf("name.jar", "org/assertj/maven/test/name/Name.class", nameClassFile);
+    File directory = temporaryFolder.newFolder("classes");
+    write(directory, "org/assertj/maven/test/Employee.class", employeeClassFile);
+
+    Set<String> classNames = scannerOf(jar, directory).findClassNamesInPackages("org.assertj.maven.test");
+
+    assertThat(classNames).containsExactly("org.assertj.maven.test.name.Name", "org.assertj.maven.test.Employee");
+  }
+
+  @Test
+  public void should_find_the_same_classes_with_several_threads() throws Exception {
+    File jar = jarOf("name.jar", "org/assertj/maven/test/name/Name.class", nameClassFile);
+    File directory = temporaryFolder.newFolder("classes");
+    write(directory, "org/assertj/maven/test/Employee.class", employeeClassFile);
+    write(directory, "org/assertj/maven/test/a/b/c/Employee.class", employeeClassFile);
+    write(directory, "org/assertj/maven/test/name/Name.class", nameClassFile);
+    write(directory, "org/assertj/maven/test/name/first/Name.class", nameClassFile);
+
+    Set<String> sequentialClassNames = scannerOf(jar, directory).findClassNamesInPackages("org.assertj.maven.test");
+    Set<String> parallelClassNames = new ClasspathScanner(null, null, rootsOf(jar, directory), new TaskRunner(4))
+        .findClassNamesInPackages("org.assertj.maven.test");
+
+    assertThat(parallelClassNames).containsExactly(sequentialClassNames.toArray(new String[0]));
+  }
+
+  @Test
+  public void should_find_public_nested_classes_but_not_non_public_anonymous_or_local_ones() throws Exception {
+    class Local {}
+    Object anonymous = new Object() {};
+    File directory = temporaryFolder.newFolder("classes");
+    for (Class<?> clazz : new Class<?>[] { PublicNested.class, PublicNested.Inner.class, ProtectedNested.class,
+        PackagePrivateNested.class, Local.class, anonymous.getClass() }) {
+      write(directory, clazz.getName().replace('.', '/') + ".class", classFileOf(clazz));
+    }
+
+    Set<String> classNames = scannerOf(directory).findClassNamesInPackages("org.assertj.maven.generator");
+
+    assertThat(classNames).containsExactly(PublicNested.class.getName(), PublicNested.Inner.class.getName());
+  }
+
+  @Test
+  public void should_report_malformed_class_files() throws Exception {
+    File directory = temporaryFolder.newFolder("classes");
+    write(directory, "org/assertj/maven/test/Employee.class", employeeClassFile);
+    write(directory, "org/assertj/maven/test/Malformed.class", NOT_A_CLASS_FILE);
+
+    try {
+      scannerOf(directory).findClassNamesInPackages("org.assertj.maven.test");
+      failBecauseExceptionWasNotThrown(IOException.class);
+    } catch (IOException e) {
+      assertThat(e).hasMessageContaining("magic number");
+    }
+  }
+
+  @Test
+  public void should_ignore_roots_that_are_not_jars() throws Exception {
+    File notAJar = temporaryFolder.newFile("not-a.jar");
+    FileUtils.writeByteArrayToFile(notAJar, NOT_A_CLASS_FILE);
+
+    assertThat(scannerOf(notAJar).findClassNamesInPackages("org.assertj.maven.test")).isEmpty();
+  }
+
+  public static class PublicNested {
+    public class Inner {}
+  }
+
+  protected static class ProtectedNested {}
+
+  static class PackagePrivateNested {}
+
+  private static ClasspathScanner scannerOf(File... roots) {
+    // the class loader is not used when the roots to scan are given
+    return new ClasspathScanner(null, null, rootsOf(roots));
+  }
+
+  private static Set<File> rootsOf(File... roots) {
+    Set<File> rootSet = new LinkedHashSet<File>();
+    for (File root : roots) {
+      rootSet.add(root);
+    }
+    return rootSet;
+  }
+
+  private static void write(File directory, String path, byte[] content) throws IOException {
+    FileUtils.writeByteArrayToFile(new File(directory, path), content);
+  }
+
+  private File jarOf(String jarName, Object... pathsAndContents) throws IOException {
+    File jar = temporaryFolder.newFile(jarName);
+    ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jar));
+    try {
+      for (int i = 0; i < pathsAndContents.length; i += 2) {
+        output.putNextEntry(new ZipEntry((String) pathsAndContents[i]));
+        output.write((byte[]) pathsAndContents[i + 1]);
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+    return jar;
+  }
+
+  static byte[] classFileOf(Class<?> clazz) throws IOException {
+    InputStream classFile = clazz.getClassLoader().getResourceAsStream(clazz.getName().replace('.', '/') + ".class");
+    try {
+      return IOUtils.toByteArray(classFile);
+    } finally {
+      classFile.close();
+    }
+  }
+
+}
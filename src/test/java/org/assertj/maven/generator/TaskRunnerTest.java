@@ -0,0 +1,93 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+public class TaskRunnerTest {
+
+  @Test
+  public void should_return_the_results_in_the_tasks_order_with_several_threads() throws Exception {
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < 20; i++) {
+      // the first tasks are the slowest so that they complete last
+      tasks.add(task(i, 20 - i));
+    }
+
+    List<Integer> results = new TaskRunner(4).runAll(tasks);
+
+    assertThat(results).hasSize(20);
+    for (int i = 0; i < 20; i++) {
+      assertThat(results.get(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void should_run_the_tasks_on_the_calling_thread_with_a_single_thread() throws Exception {
+    final Thread callingThread = Thread.currentThread();
+    List<Callable<Thread>> tasks = new ArrayList<Callable<Thread>>();
+    for (int i = 0; i < 2; i++) {
+      tasks.add(new Callable<Thread>() {
+        @Override
+        public Thread call() {
+          return Thread.currentThread();
+        }
+      });
+    }
+
+    assertThat(new TaskRunner(1).runAll(tasks)).containsExactly(callingThread, callingThread);
+  }
+
+  @Test
+  public void should_throw_the_exception_of_the_first_failing_task() throws Exception {
+    List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+    tasks.add(task(0, 0));
+    tasks.add(failingTask("first failure", 20));
+    tasks.add(failingTask("second failure", 0));
+    try {
+      new TaskRunner(4).runAll(tasks);
+      failBecauseExceptionWasNotThrown(IOException.class);
+    } catch (IOException e) {
+      assertThat(e).hasMessage("first failure");
+    }
+  }
+
+  private static Callable<Integer> task(final int result, final long durationInMillis) {
+    return new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        Thread.sleep(durationInMillis);
+        return result;
+      }
+    };
+  }
+
+  private static Callable<Integer> failingTask(final String message, final long durationInMillis) {
+    return new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        Thread.sleep(durationInMillis);
+        throw new IOException(message);
+      }
+    };
+  }
+
+}
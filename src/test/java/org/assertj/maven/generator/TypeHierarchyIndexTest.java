@@ -0,0 +1,90 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TypeHierarchyIndexTest {
+
+  @Test
+  public void should_list_generated_superclasses_nearest_first() throws Exception {
+    TypeHierarchyIndex index = indexOf(Vehicle.class, Car.class, SportCar.class);
+
+    assertThat(index.generatedSuperclassesOf(SportCar.class)).containsExactly(Car.class, Vehicle.class);
+    assertThat(index.generatedSuperclassesOf(Car.class)).containsExactly(Vehicle.class);
+    assertThat(index.generatedSuperclassesOf(Vehicle.class)).isEmpty();
+  }
+
+  @Test
+  public void should_skip_superclasses_that_are_not_generated() throws Exception {
+    TypeHierarchyIndex index = indexOf(Vehicle.class, SportCar.class);
+
+    assertThat(index.generatedSuperclassesOf(SportCar.class)).containsExactly(Vehicle.class);
+  }
+
+  @Test
+  public void should_share_the_superclasses_of_a_superclass_that_is_not_generated() throws Exception {
+    TypeHierarchyIndex index = indexOf(Vehicle.class, SportCar.class, Van.class, Truck.class);
+
+    assertThat(index.generatedSuperclassesOf(SportCar.class)).containsExactly(Vehicle.class);
+    assertThat(index.generatedSuperclassesOf(Van.class)).containsExactly(Vehicle.class);
+    // Car and Vehicle are only walked once for all their subclasses
+    assertThat(index.generatedSuperclassesOf(Van.class)).isSameAs(index.generatedSuperclassesOf(SportCar.class));
+    assertThat(index.generatedSuperclassesOf(Truck.class)).containsExactly(Vehicle.class);
+  }
+
+  @Test
+  public void should_have_no_generated_superclasses_for_a_hierarchy_without_generated_classes() throws Exception {
+    TypeHierarchyIndex index = indexOf(SportCar.class, Van.class);
+
+    assertThat(index.generatedSuperclassesOf(SportCar.class)).isEmpty();
+    assertThat(index.generatedSuperclassesOf(Van.class)).isEmpty();
+    assertThat(index.getClasses()).containsExactly(SportCar.class, Van.class);
+  }
+
+  @Test
+  public void generated_superclasses_should_not_be_modifiable() throws Exception {
+    TypeHierarchyIndex index = indexOf(Vehicle.class, Car.class);
+    try {
+      index.generatedSuperclassesOf(Car.class).clear();
+      failBecauseExceptionWasNotThrown(UnsupportedOperationException.class);
+    } catch (UnsupportedOperationException e) {
+      assertThat(index.generatedSuperclassesOf(Car.class)).containsExactly(Vehicle.class);
+    }
+  }
+
+  private static TypeHierarchyIndex indexOf(Class<?>... classes) {
+    Set<Class<?>> classSet = new LinkedHashSet<Class<?>>();
+    for (Class<?> clazz : classes) {
+      classSet.add(clazz);
+    }
+    return new TypeHierarchyIndex(classSet);
+  }
+
+  public static class Vehicle {}
+
+  public static class Car extends Vehicle {}
+
+  public static class SportCar extends Car {}
+
+  public static class Van extends Car {}
+
+  public static class Truck extends Vehicle {}
+
+}
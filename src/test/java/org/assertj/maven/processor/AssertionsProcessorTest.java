@@ -0,0 +1,129 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Copyright 2012-2014 the original author or authors.
+ */
+package org.assertj.maven.processor;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+import static org.assertj.core.util.Lists.newArrayList;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AssertionsProcessorTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File testSource;
+  private File generatedSources;
+  private List<File> sources;
+  private DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+  @Before
+  public void setUp() throws Exception {
+    testSource = new File(temporaryFolder.newFolder("test-sources"), "EmployeeTest.java");
+    FileUtils.write(testSource, "public class EmployeeTest {}\n");
+    generatedSources = temporaryFolder.newFolder("generated-sources");
+    sources = newArrayList(testSource);
+  }
+
+  @Test
+  public void should_generate_assertions_through_the_filer_while_compiling() throws Exception {
+    boolean compiled = compileWithProcessor("-Aassertj.packages=org.assertj.maven.test");
+
+    assertThat(compiled).isTrue();
+    File packageDirectory = new File(generatedSources, "org/assertj/maven/test");
+    assertThat(new File(packageDirectory, "EmployeeAssert.java")).exists();
+    assertThat(contentOf(new File(packageDirectory, "Assertions.java"))).contains("EmployeeAssert assertThat(");
+    assertThat(new File(packageDirectory, "BddAssertions.java")).exists();
+    assertThat(new File(packageDirectory, "SoftAssertions.java")).exists();
+    // JUnit is on the test classpath
+    assertThat(new File(packageDirectory, "JUnitSoftAssertions.java")).exists();
+  }
+
+  @Test
+  public void should_not_generate_disabled_entry_points() throws Exception {
+    compileWithProcessor("-Aassertj.classes=org.assertj.maven.test.Employee",
+                         "-Aassertj.generate.BddAssertions=false", "-Aassertj.generate.JUnitSoftAssertions=false");
+
+    File packageDirectory = new File(generatedSources, "org/assertj/maven/test");
+    assertThat(new File(packageDirectory, "EmployeeAssert.java")).exists();
+    assertThat(new File(packageDirectory, "Assertions.java")).exists();
+    assertThat(new File(packageDirectory, "BddAssertions.java")).doesNotExist();
+    assertThat(new File(packageDirectory, "JUnitSoftAssertions.java")).doesNotExist();
+  }
+
+  @Test
+  public void should_do_nothing_without_packages_nor_classes() throws Exception {
+    boolean compiled = compileWithProcessor();
+
+    assertThat(compiled).isTrue();
+    assertThat(generatedSources.list()).isEmpty();
+  }
+
+  @Test
+  public void should_warn_about_classes_compiled_by_the_same_javac_run() throws Exception {
+    File newClassSource = new File(temporaryFolder.newFolder("main-sources"), "NewClass.java");
+    FileUtils.write(newClassSource, "package org.assertj.maven.test;\npublic class NewClass {}\n");
+    sources.add(newClassSource);
+
+    boolean compiled = compileWithProcessor("-Aassertj.packages=org.assertj.maven.test");
+
+    assertThat(compiled).isTrue();
+    assertThat(warnings()).hasSize(1);
+    assertThat(warnings().get(0)).contains("org.assertj.maven.test.NewClass");
+    assertThat(new File(generatedSources, "org/assertj/maven/test/NewClassAssert.java")).doesNotExist();
+  }
+
+  private List<String> warnings() {
+    List<String> warnings = newArrayList();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.WARNING) warnings.add(diagnostic.getMessage(Locale.ENGLISH));
+    }
+    return warnings;
+  }
+
+  private boolean compileWithProcessor(String... processorOptions) throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    try {
+      List<String> options = newArrayList("-proc:only", "-s", generatedSources.getPath(),
+                                          "-classpath", System.getProperty("java.class.path"));
+      options.addAll(newArrayList(processorOptions));
+      CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                                              fileManager.getJavaFileObjectsFromFiles(sources));
+      // the processor is loaded by the test class loader which knows the classes to generate assertions for
+      task.setProcessors(singletonList(new AssertionsProcessor()));
+      return task.call();
+    } finally {
+      fileManager.close();
+    }
+  }
+
+}